@@ -47,6 +47,9 @@ public class Agent {
 
 	private final long id;
 
+	/** The index of the agent in its AgentRegistry list, -1 if not registered. */
+	int registryIndex = -1;
+
 	private double heading = Globals.getRandomReplaySource() != null ? SimulationParameters.isHomogenous() ? 134 : 134
 			: Globals.getRandomSource() != null ? Globals.getRandomSource().randomInt(0, 360) : 0.0d; // 260 is the initial value in NetLogo replays random scenario.
 
@@ -83,18 +86,39 @@ public class Agent {
 	 * @return The GridPoint coordinates for the passed point.
 	 */
 	public static GridPoint ndPointToGridPoint(final NdPoint point) {
-		int x = (int) Math.round(point.getX());
-		int y = (int) Math.round(point.getY());
+		return new GridPoint(ndXToGridX(point.getX()), ndYToGridY(point.getY()));
+	}
+
+	/**
+	 * Changes an x coordinate in space to the grid, with the same rounding as {@link #ndPointToGridPoint(NdPoint)}.
+	 *
+	 * @param x The x coordinate in space.
+	 * @return The x coordinate in the grid.
+	 */
+	public static int ndXToGridX(final double x) {
+		int gridX = (int) Math.round(x);
 
-		if (y == Globals.getWorldHeight()) {
-			y--;
+		if (gridX == Globals.getWorldWidth()) {
+			gridX--;
 		}
 
-		if (x == Globals.getWorldWidth()) {
-			x--;
+		return gridX;
+	}
+
+	/**
+	 * Changes a y coordinate in space to the grid, with the same rounding as {@link #ndPointToGridPoint(NdPoint)}.
+	 *
+	 * @param y The y coordinate in space.
+	 * @return The y coordinate in the grid.
+	 */
+	public static int ndYToGridY(final double y) {
+		int gridY = (int) Math.round(y);
+
+		if (gridY == Globals.getWorldHeight()) {
+			gridY--;
 		}
 
-		return new GridPoint(x, y);
+		return gridY;
 	}
 
 	/**
@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import dk.au.bios.porpoise.agents.misc.TrackingDisplayAgent;
+import repast.simphony.context.Context;
+import repast.simphony.context.ContextEvent;
+import repast.simphony.context.ContextListener;
+
+/**
+ * The agents of the simulation context, grouped by type.
+ *
+ * The registry listens to the agents added to and removed from the context, so the tasks can iterate the agents of a
+ * type directly instead of querying the context by class. The agents of each type are kept in a dense array in the
+ * order they were added to the context, i.e. the order used when iterating the context. As the processing order of the
+ * porpoises determines the order of the random draws, a removal leaves a gap which is closed on the next access
+ * instead of moving the last agent into it.
+ */
+public final class AgentRegistry implements ContextListener<Agent> {
+
+	private static AgentRegistry registry;
+
+	private final Context<Agent> context;
+	private final AgentList<Porpoise> porpoises = new AgentList<>();
+	private final AgentList<Turbine> turbines = new AgentList<>();
+	private final AgentList<SoundSource> soundSources = new AgentList<>();
+	private TrackingDisplayAgent trackingDisplayAgent;
+
+	private AgentRegistry(final Context<Agent> context) {
+		this.context = context;
+		for (final Agent a : context) {
+			added(a);
+		}
+		context.addContextListener(this);
+	}
+
+	/**
+	 * Returns the registry of the context, creating it on first use.
+	 *
+	 * @param context The simulation context
+	 * @return The registry of the agents in the context
+	 */
+	public static synchronized AgentRegistry forContext(final Context<Agent> context) {
+		if (registry == null || registry.context != context) {
+			if (registry != null) {
+				registry.context.removeContextListener(registry);
+			}
+			registry = new AgentRegistry(context);
+		}
+		return registry;
+	}
+
+	public AgentList<Porpoise> getPorpoises() {
+		return porpoises;
+	}
+
+	public AgentList<Turbine> getTurbines() {
+		return turbines;
+	}
+
+	/**
+	 * @return The sound sources, including the ships.
+	 */
+	public AgentList<SoundSource> getSoundSources() {
+		return soundSources;
+	}
+
+	public TrackingDisplayAgent getTrackingDisplayAgent() {
+		return trackingDisplayAgent;
+	}
+
+	@Override
+	public void eventOccured(final ContextEvent<Agent> ev) {
+		if (ev.getType() == ContextEvent.EventType.AGENT_ADDED) {
+			added(ev.getTarget());
+		} else if (ev.getType() == ContextEvent.EventType.AGENT_REMOVED) {
+			removed(ev.getTarget());
+		}
+	}
+
+	private void added(final Agent a) {
+		if (a instanceof Porpoise) {
+			porpoises.add((Porpoise) a);
+		} else if (a instanceof Turbine) {
+			turbines.add((Turbine) a);
+		} else if (a instanceof SoundSource) {
+			soundSources.add((SoundSource) a);
+		} else if (a instanceof TrackingDisplayAgent) {
+			trackingDisplayAgent = (TrackingDisplayAgent) a;
+		}
+	}
+
+	private void removed(final Agent a) {
+		if (a instanceof Porpoise) {
+			porpoises.remove(a);
+		} else if (a instanceof Turbine) {
+			turbines.remove(a);
+		} else if (a instanceof SoundSource) {
+			soundSources.remove(a);
+		} else if (a == trackingDisplayAgent) {
+			trackingDisplayAgent = null;
+		}
+	}
+
+	/**
+	 * The agents of one type, in the order they were added.
+	 *
+	 * Agents may be added and removed while iterating, the iterator only returns the agents present when it was
+	 * created and not removed since. {@link #compact()}, {@link #size()} and {@link #toArray(Agent[])} close the gaps
+	 * left by removed agents, so they must not be called while iterating or concurrently with changes to the list.
+	 * {@link #get(int)} only reads the list and requires the gaps to be closed, so indexed access from several
+	 * threads is safe after calling {@link #size()} or {@link #compact()} on the simulation thread.
+	 *
+	 * @param <T> The type of agent
+	 */
+	public static final class AgentList<T extends Agent> implements Iterable<T> {
+
+		private Agent[] agents = new Agent[16];
+		private int end = 0; // One past the last used slot
+		private int gaps = 0;
+
+		void add(final T agent) {
+			if (end == agents.length) {
+				agents = Arrays.copyOf(agents, agents.length * 2);
+			}
+			agent.registryIndex = end;
+			agents[end++] = agent;
+		}
+
+		void remove(final Agent agent) {
+			final int i = agent.registryIndex;
+			if (i >= 0 && i < end && agents[i] == agent) {
+				agents[i] = null;
+				agent.registryIndex = -1;
+				gaps++;
+			}
+		}
+
+		/**
+		 * @return The number of agents.
+		 */
+		public int size() {
+			compact();
+			return end;
+		}
+
+		/**
+		 * @param index The index of the agent, between 0 and {@link #size()}
+		 * @return The agent.
+		 * @throws IllegalStateException if agents have been removed since the list was last compacted.
+		 */
+		@SuppressWarnings("unchecked")
+		public T get(final int index) {
+			if (gaps != 0) {
+				throw new IllegalStateException("Removed agents not compacted, call size() or compact() first");
+			}
+			if (index >= end) {
+				throw new IndexOutOfBoundsException(index);
+			}
+			return (T) agents[index];
+		}
+
+		/**
+		 * Copies the agents into an array, e.g. to process them while agents are added or removed.
+		 *
+		 * @param array An array which is used if it is large enough
+		 * @return The array holding the agents, followed by null if the array is larger.
+		 */
+		@SuppressWarnings("unchecked")
+		public T[] toArray(final T[] array) {
+			compact();
+			final T[] result = array.length >= end ? array : Arrays.copyOf(array, end);
+			System.arraycopy(agents, 0, result, 0, end);
+			if (result.length > end) {
+				result[end] = null;
+			}
+			return result;
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+			return new Iterator<T>() {
+				private final Agent[] snapshot = agents;
+				private final int snapshotEnd = end;
+				private int next = advance(0);
+
+				private int advance(int i) {
+					// Skip the agents removed since the iterator was created
+					while (i < snapshotEnd && (snapshot[i] == null || snapshot[i].registryIndex != i)) {
+						i++;
+					}
+					return i;
+				}
+
+				@Override
+				public boolean hasNext() {
+					next = advance(next);
+					return next < snapshotEnd;
+				}
+
+				@Override
+				@SuppressWarnings("unchecked")
+				public T next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					return (T) snapshot[next++];
+				}
+			};
+		}
+
+		/**
+		 * Closes the gaps left by removed agents, keeping the order of the remaining agents.
+		 */
+		public void compact() {
+			if (gaps == 0) {
+				return;
+			}
+			int j = 0;
+			for (int i = 0; i < end; i++) {
+				final Agent a = agents[i];
+				if (a != null) {
+					a.registryIndex = j;
+					agents[j++] = a;
+				}
+			}
+			Arrays.fill(agents, j, end, null);
+			end = j;
+			gaps = 0;
+		}
+
+	}
+
+}
@@ -27,66 +27,36 @@
 
 package dk.au.bios.porpoise;
 
-import dk.au.bios.porpoise.util.SimulationTime;
-import repast.simphony.context.Context;
+import dk.au.bios.porpoise.landscape.BlockCounter;
 
 /**
  * Dummy placeholder for the squares in the model.
  */
 public class Block extends Agent {
 
-	private static double lastUpdate = -1;
-	private static int[] blockCount;
-	private static Context<Agent> context;
+	private static BlockCounter blockCounter;
 
 	/**
 	 * Constructor.
 	 *
-	 * @param space A reference to the space.
-	 * @param grid A reference to the grid.
 	 * @param id The id number of the square, this is the number from the
-	 * @param context The current context.
 	 */
-	public Block(final long id, final Context<Agent> context) {
+	public Block(final long id) {
 		super(id);
-		Block.context = context;
 	}
 
 	public int getPorpoiseCount() {
-		update();
-
-		return blockCount[(int) this.getId()];
-	}
-
-	public static void initialize(final int numBlocks) {
-		blockCount = new int[numBlocks];
+		return blockCounter.getSnapshot()[(int) this.getId()];
 	}
 
-	// TODO Internal synchronization object
-	public static synchronized void update() {
-		if (lastUpdate != SimulationTime.getTick()) {
-			// update is required
-
-			for (int i = 0; i < blockCount.length; i++) {
-				blockCount[i] = 0;
-			}
-
-			for (final Agent a : context.getObjects(Porpoise.class)) {
-				final Porpoise p = (Porpoise) a;
-				final int block = p.getBlock();
-
-				if (block >= 0) {
-					blockCount[block]++;
-					//} else {
-					// Some water fields seems to be marked as "no block" -999
-					// System.out.println("Porpoise " + p.getId() + " is in block " + p.getBlock() + "?! " +
-					// p.getPosition());
-				}
-			}
-
-			// Ensure that we only update the table once per tick.
-			lastUpdate = SimulationTime.getTick();
-		}
+	/**
+	 * Sets the counter providing the number of porpoises in each block. The counter must be registered as a
+	 * projection listener on the space before the porpoises are added.
+	 *
+	 * @param counter The block counter.
+	 */
+	public static void initialize(final BlockCounter counter) {
+		blockCounter = counter;
 	}
 
 }
@@ -28,6 +28,7 @@
 package dk.au.bios.porpoise;
 
 import java.util.LinkedList;
+import java.util.List;
 
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
@@ -35,6 +36,9 @@ import dk.au.bios.porpoise.behavior.RandomSource;
 import dk.au.bios.porpoise.landscape.CellData;
 import dk.au.bios.porpoise.landscape.DataFileMetaData;
 import dk.au.bios.porpoise.landscape.GridSpatialPartitioning;
+import dk.au.bios.porpoise.landscape.HydrophoneArray;
+import dk.au.bios.porpoise.util.DeathEventBuffer;
+import dk.au.bios.porpoise.util.SimulationExecutor;
 import dk.au.bios.porpoise.util.SimulationTime;
 import repast.simphony.space.continuous.ContinuousSpace;
 import repast.simphony.space.continuous.NdPoint;
@@ -66,6 +70,8 @@ public final class Globals {
 	// Day of death for all animals that die. Reset every year
 	private static LinkedList<Integer> listOfDeadDay = new LinkedList<Integer>();
 
+	private static DeathEventBuffer deathEvents = new DeathEventBuffer();
+
 	// public static double[] MEAN_MAXENT_IN_QUATERS = {0.515686364223653, 0.888541219760357, 0.841346010536882, 1}; //
 	// standardized average maxent level in each quarter
 	private static double[] meanMaxEntInQuarters = { 1, 1, 1, 1 }; // standardized average maxent level in each quarter
@@ -79,6 +85,11 @@ public final class Globals {
 
 	private static GridSpatialPartitioning spatialPartitioning;
 
+	private static HydrophoneArray hydrophones = new HydrophoneArray(List.of());
+
+	// Executor used for all parallel work. Serial until configured by the PorpoiseSimBuilder.
+	private static SimulationExecutor simulationExecutor = new SimulationExecutor(1);
+
 	public static RandomSource getRandomSource() {
 		return randomSource;
 	}
@@ -99,6 +110,17 @@ public final class Globals {
 		monthlyStats = new PorpoiseStatistics();
 	}
 
+	/**
+	 * @return The deaths not yet written to the Reproduction file.
+	 */
+	public static DeathEventBuffer getDeathEvents() {
+		return deathEvents;
+	}
+
+	public static void resetDeathEvents() {
+		deathEvents = new DeathEventBuffer();
+	}
+
 	public static ContinuousSpace<Agent> getSpace() {
 		return space;
 	}
@@ -123,6 +145,25 @@ public final class Globals {
 		spatialPartitioning = gsp;
 	}
 
+	public static HydrophoneArray getHydrophones() {
+		return hydrophones;
+	}
+
+	public static void setHydrophones(HydrophoneArray hydrophones) {
+		Globals.hydrophones = hydrophones;
+	}
+
+	public static SimulationExecutor getSimulationExecutor() {
+		return simulationExecutor;
+	}
+
+	public static void setSimulationExecutor(final SimulationExecutor executor) {
+		if (simulationExecutor != null && simulationExecutor != executor) {
+			simulationExecutor.shutdown();
+		}
+		simulationExecutor = executor;
+	}
+
 	public static LinkedList<Integer> getListOfDeadAge() {
 		return listOfDeadAge;
 	}
@@ -30,13 +30,14 @@ package dk.au.bios.porpoise;
 import java.text.DecimalFormat;
 import java.util.concurrent.atomic.AtomicLong;
 
-import dk.au.bios.porpoise.agents.misc.DeadPorpoiseReportProxy;
 import dk.au.bios.porpoise.agents.misc.TrackingDisplayAgent;
+import dk.au.bios.porpoise.behavior.CalfSpatialMemory;
 import dk.au.bios.porpoise.behavior.Dispersal;
 import dk.au.bios.porpoise.behavior.DispersalFactory;
 import dk.au.bios.porpoise.behavior.PersistentSpatialMemory;
 import dk.au.bios.porpoise.behavior.RefMem;
 import dk.au.bios.porpoise.behavior.RefMemTurnCalculator;
+import dk.au.bios.porpoise.landscape.BlockCounter;
 import dk.au.bios.porpoise.ships.ShipDeterrence;
 import dk.au.bios.porpoise.tasks.YearlyTask;
 import dk.au.bios.porpoise.util.CircularBuffer;
@@ -129,12 +130,16 @@ public class Porpoise extends Agent {
 
 	private final PersistentSpatialMemory psm; // Always enabled for now.
 	private PersistentSpatialMemory calfPsm = null; // If the porpoise is with calf, then this is the PSM it will use.
+	private CalfSpatialMemory calfPsmView = null; // Used instead of calfPsm if the calf builds up a PSM while nursing.
 	private boolean trackVisitedCells = false;
 	private boolean writePsmSteps = false;
 
 	private ShipDeterrence shipDeterrence = new ShipDeterrence();
 	private double loudestShipSPL = 0.0d;
 
+	private int spatialSlot = -1; // Slot in the spatial partitioning, maintained by GridSpatialPartitioning.
+	private int countedBlock = BlockCounter.NO_BLOCK; // The block the porpoise is counted in, maintained by BlockCounter.
+
 	/**
 	 * Constructor for a newborn porpoised.
 	 *
@@ -652,8 +657,7 @@ public class Porpoise extends Agent {
 
 	private void trackCellVisit() {
 		if (trackVisitedCells && isAlive()) {
-			final TrackingDisplayAgent tda = (TrackingDisplayAgent) context.getObjects(TrackingDisplayAgent.class).get(
-					0);
+			final TrackingDisplayAgent tda = AgentRegistry.forContext(context).getTrackingDisplayAgent();
 			final GridPoint gp = this.getGrid().getLocation(this);
 			int visitType;
 			if (this.dispersalBehaviour.isDispersing()) {
@@ -712,9 +716,9 @@ public class Porpoise extends Agent {
 
 		this.foodEatenDailyTemp += foodEaten;
 		ReplayHelper.print("energy before eat food {0} eaten {1}", energyLevel, foodEaten);
-		psm.updateMemory(getPosition(), foodEaten);
-		if (calfPsm != null && this.getDispersalBehaviour().calfHasPSM()) {
-			calfPsm.updateMemory(getPosition(), foodEaten);
+		final int memCellIndex = psm.updateMemory(getPosition(), foodEaten);
+		if (calfPsmView != null && memCellIndex >= 0) {
+			calfPsmView.record(memCellIndex, foodEaten);
 		}
 		this.energyLevel += foodEaten;
 
@@ -758,6 +762,7 @@ public class Porpoise extends Agent {
 			if (this.withLactCalf) {
 				this.withLactCalf = false;
 				this.calfPsm = null;
+				this.calfPsmView = null;
 			}
 		}
 
@@ -826,17 +831,32 @@ public class Porpoise extends Agent {
 	}
 
 	public NdPoint getPointAtHeadingAndDist(final double heading, final double distance) {
+		final double[] movedCoords = new double[2];
+		getPointAtHeadingAndDist(heading, distance, movedCoords, new double[2]);
+
+		return new NdPoint(movedCoords);
+	}
+
+	/**
+	 * Calculates the point as {@link #getPointAtHeadingAndDist(double, double)}, storing it in the given array instead
+	 * of creating an NdPoint.
+	 *
+	 * @param heading The heading to move in
+	 * @param distance The distance to move
+	 * @param movedCoords Receives the x and y coordinates of the point
+	 * @param anglesInRadians Working array of length 2
+	 */
+	public void getPointAtHeadingAndDist(final double heading, final double distance, final double[] movedCoords,
+			final double[] anglesInRadians) {
 		final double headingNormalized = normHeading(heading);
 
-		final double[] anglesInRadians = { (Math.PI / 2) - getHeadingInRads(headingNormalized), 0.0 };
+		anglesInRadians[0] = (Math.PI / 2) - getHeadingInRads(headingNormalized);
+		anglesInRadians[1] = 0.0;
 		final double[] displacement = SpatialMath.getDisplacement(2, 0, distance, anglesInRadians);
 
-		final double[] movedCoords = new double[2];
 		getPosition().toDoubleArray(movedCoords);
 		final PointTranslator trans = this.getSpace().getPointTranslator();
 		trans.translate(movedCoords, displacement);
-
-		return new NdPoint(movedCoords);
 	}
 
 	public NdPoint getPointAtHeadingAndDistNoBorder(final double heading, final double distance) {
@@ -1027,9 +1047,24 @@ public class Porpoise extends Agent {
 		context.remove(this);
 		Globals.getMonthlyStats().addDeath(cause);
 		YearlyTask.recordDeath((int) Math.floor(this.getAge()));
-		
-		DeadPorpoiseReportProxy reportProxy = new DeadPorpoiseReportProxy(this);
-		context.add(reportProxy);
+		Globals.getDeathEvents().add(SimulationTime.getTick(), this.getAge(), this.calvesBorn, this.calvesWeaned,
+				this.dispersalBehaviour.getDispersalShortName());
+		drawAsDeathReportAgent();
+	}
+
+	/**
+	 * Deaths used to be reported by adding an agent to the context. Its initial heading (see {@link Agent}) and its
+	 * placement by the RandomCartesianAdder of the space were drawn from the shared random generator. The same draws
+	 * are made here, so the random numbers used by the rest of the simulation are unchanged.
+	 */
+	private void drawAsDeathReportAgent() {
+		if (Globals.getRandomReplaySource() == null && Globals.getRandomSource() != null) {
+			Globals.getRandomSource().randomInt(0, 360);
+		}
+
+		final Dimensions dim = this.getSpace().getDimensions();
+		RandomHelper.getUniform().nextDoubleFromTo(0, dim.getWidth());
+		RandomHelper.getUniform().nextDoubleFromTo(0, dim.getHeight());
 	}
 
 	public boolean isAlive() {
@@ -1168,8 +1203,12 @@ public class Porpoise extends Agent {
 			} else {
 				calfPsmPrefDistance = PersistentSpatialMemory.generatedPreferredDistance();
 			}
-			this.calfPsm = new PersistentSpatialMemory(Globals.getWorldWidth(), Globals.getWorldHeight(),
-					calfPsmPrefDistance);
+			if (this.getDispersalBehaviour().calfHasPSM()) {
+				this.calfPsmView = new CalfSpatialMemory(this.psm, calfPsmPrefDistance);
+			} else {
+				this.calfPsm = new PersistentSpatialMemory(Globals.getWorldWidth(), Globals.getWorldHeight(),
+						calfPsmPrefDistance);
+			}
 
 			this.daysSinceMating = -99;
 			this.daysSinceGivingBirth = 0;
@@ -1203,6 +1242,7 @@ public class Porpoise extends Agent {
 			this.withLactCalf = false;
 			this.calvesWeaned++;
 			this.calfPsm = null;
+			this.calfPsmView = null;
 			this.daysSinceGivingBirth = -99;
 		}
 
@@ -1226,6 +1266,10 @@ public class Porpoise extends Agent {
 	}
 	
 	public void applyShipDeterrence() {
+		if (!shipDeterrence.isDirty()) {
+			return; // No ship contact this tick
+		}
+
 		var deterrenceStrength = shipDeterrence.deterrenceStrength();
 		if (deterrenceStrength > 0) {
 			this.loudestShipSPL = shipDeterrence.getLoudestShipSPL();
@@ -1343,6 +1387,22 @@ public class Porpoise extends Agent {
 		return loudestShipSPL;
 	}
 
+	public int getSpatialSlot() {
+		return spatialSlot;
+	}
+
+	public void setSpatialSlot(final int spatialSlot) {
+		this.spatialSlot = spatialSlot;
+	}
+
+	public int getCountedBlock() {
+		return countedBlock;
+	}
+
+	public void setCountedBlock(final int countedBlock) {
+		this.countedBlock = countedBlock;
+	}
+
 	public double getDeterStrength() {
 		return this.deterStrength;
 	}
@@ -1369,8 +1429,14 @@ public class Porpoise extends Agent {
 		return psm;
 	}
 
+	/**
+	 * Returns the PSM of the calf. If the calf builds up a PSM while nursing, each call creates it from the view of the
+	 * mother's PSM, which is done once when the calf leaves its mother.
+	 *
+	 * @return The calf PSM, or null if there is no calf.
+	 */
 	public PersistentSpatialMemory getCalfPersistentSpatialMemory() {
-		return calfPsm;
+		return calfPsmView != null ? calfPsmView.materialize() : calfPsm;
 	}
 
 	public double getUtmX() {
@@ -37,20 +37,24 @@ import dk.au.bios.porpoise.behavior.GeneratedRandomSource;
 import dk.au.bios.porpoise.behavior.RefMem;
 import dk.au.bios.porpoise.behavior.RefMemTurnCalculator;
 import dk.au.bios.porpoise.behavior.ReplayedRandomSource;
+import dk.au.bios.porpoise.landscape.BlockCounter;
 import dk.au.bios.porpoise.landscape.CellData;
 import dk.au.bios.porpoise.landscape.GridSpatialPartitioning;
 import dk.au.bios.porpoise.landscape.HydrophoneLoader;
 import dk.au.bios.porpoise.landscape.LandscapeLoader;
 import dk.au.bios.porpoise.ships.ShipLoader;
+import dk.au.bios.porpoise.ships.ShipTimeline;
 import dk.au.bios.porpoise.tasks.AddTrackedPorpoisesTask;
 import dk.au.bios.porpoise.tasks.CaptureTestDataTask;
 import dk.au.bios.porpoise.tasks.DailyTask;
-import dk.au.bios.porpoise.tasks.DeadPorpoisesReportProxyCleanupTask;
 import dk.au.bios.porpoise.tasks.DeterrenceTask;
 import dk.au.bios.porpoise.tasks.FoodTask;
 import dk.au.bios.porpoise.tasks.MonthlyTasks;
+import dk.au.bios.porpoise.tasks.ReproductionReportTask;
+import dk.au.bios.porpoise.tasks.ShipMoveTask;
 import dk.au.bios.porpoise.tasks.YearlyTask;
 import dk.au.bios.porpoise.util.DebugLog;
+import dk.au.bios.porpoise.util.SimulationExecutor;
 import dk.au.bios.porpoise.util.test.PorpoiseTestDataCapturer;
 import repast.simphony.context.Context;
 import repast.simphony.context.space.continuous.ContinuousSpaceFactory;
@@ -88,6 +92,7 @@ public class PorpoiseSimBuilder implements ContextBuilder<Agent> {
 
 		final Parameters params = RunEnvironment.getInstance().getParameters();
 		SimulationParameters.initialize(params);
+		Globals.setSimulationExecutor(new SimulationExecutor(SimulationParameters.getParallelism()));
 
 		Globals.setSimYears(params.getInteger("simYears"));
 		if (Globals.getSimYears() == null && RunEnvironment.getInstance().isBatch()) {
@@ -112,6 +117,7 @@ public class PorpoiseSimBuilder implements ContextBuilder<Agent> {
 		}
 
 		Globals.resetMonthlyStats();
+		Globals.resetDeathEvents();
 
 		DebugLog.initialize(params);
 		// Reset the counter for the porpoise id generator.
@@ -149,8 +155,12 @@ public class PorpoiseSimBuilder implements ContextBuilder<Agent> {
 
 		Globals.setSpace(space);
 		Globals.setGrid(grid);
-		Globals.setSpatialPartitioning(new GridSpatialPartitioning(25, 25)); // Each "super-grid" cell is 25x25 normal cells (10km x 10km)
+		// Each "super-grid" cell is 25x25 normal cells (10km x 10km). Cells with more than 64 porpoises are split into
+		// 5x5 sub-cells (2km x 2km), and merged again when they hold fewer than 16 porpoises.
+		Globals.setSpatialPartitioning(new GridSpatialPartitioning(25, 25, 5, 64, 16));
 		space.addProjectionListener(Globals.getSpatialPartitioning());
+		final BlockCounter blockCounter = new BlockCounter(cellData.getBlock());
+		space.addProjectionListener(blockCounter);
 
 		final FoodAgentProxy foodAgent = new FoodAgentProxy(0);
 		context.add(foodAgent);
@@ -160,10 +170,11 @@ public class PorpoiseSimBuilder implements ContextBuilder<Agent> {
 
 		addTrackedPorpoises(context, space, grid);
 
+		ShipTimeline shipTimeline = null;
 		if (SimulationParameters.isShipsEnabled()) {
 			ShipLoader loader = new ShipLoader();
 			try {
-				loader.load(context, landscape);
+				shipTimeline = loader.load(context, landscape);
 			} catch (Exception e) {
 				var errorMsg = "Error loading ship data: " + e.getMessage();
 				if (RunEnvironment.getInstance().isBatch()) {
@@ -199,9 +210,9 @@ public class PorpoiseSimBuilder implements ContextBuilder<Agent> {
 			a.setPosition(pt);
 		}
 
-		setupSchedules(context, space, grid, cellData);
+		setupSchedules(context, space, grid, cellData, shipTimeline);
 		addVisualAgents(context, space, grid, cellData);
-		addBlocks(cellData.getBlock(), space, grid, context);
+		addBlocks(blockCounter, context);
 
 		/*
 		 * Parameter removed, should be hardcoded to false if
@@ -327,15 +338,15 @@ public class PorpoiseSimBuilder implements ContextBuilder<Agent> {
 	}
 
 	private void setupSchedules(final Context<Agent> context, final ContinuousSpace<Agent> space,
-			final Grid<Agent> grid, final CellData cellData) {
+			final Grid<Agent> grid, final CellData cellData, final ShipTimeline shipTimeline) {
 		final ISchedule schedule = RunEnvironment.getInstance().getCurrentSchedule();
 
 		final ScheduleParameters foodParams = ScheduleParameters.createRepeating(48, 48, AgentPriority.FOOD);
 
-		final IAction deadPorpoisesTask = new DeadPorpoisesReportProxyCleanupTask(context);
-		final ScheduleParameters deadPorpoisesParams = ScheduleParameters.createRepeating(0, 1,
-				AgentPriority.FIRST_EVERY_TICK);
-		schedule.schedule(deadPorpoisesParams, deadPorpoisesTask);
+		final IAction reproductionReportTask = new ReproductionReportTask();
+		final ScheduleParameters reproductionReportParams = ScheduleParameters.createRepeating(1, 1,
+				ScheduleParameters.LAST_PRIORITY);
+		schedule.schedule(reproductionReportParams, reproductionReportTask);
 
 		// Special tick#1 daily-tasks
 		final ScheduleParameters dailyParamsDay1 = ScheduleParameters.createOneTime(1, AgentPriority.DAILY);
@@ -369,10 +380,15 @@ public class PorpoiseSimBuilder implements ContextBuilder<Agent> {
 					new CaptureTestDataTask(context));
 		}
 
+		if (shipTimeline != null) {
+			final ScheduleParameters shipMoveParams = ScheduleParameters.createRepeating(0, 1, AgentPriority.SHIP_MOVE);
+			schedule.schedule(shipMoveParams, new ShipMoveTask(shipTimeline));
+		}
+
 		if (SimulationParameters.getModel() >= 3) {
 			final ScheduleParameters deterenceParams = ScheduleParameters.createRepeating(0, 1,
 					AgentPriority.PORP_DETERRENCE);
-			schedule.schedule(deterenceParams, new DeterrenceTask(context));
+			schedule.schedule(deterenceParams, new DeterrenceTask(context, shipTimeline));
 		}
 	}
 
@@ -381,22 +397,11 @@ public class PorpoiseSimBuilder implements ContextBuilder<Agent> {
 	 * enable the text sinks to use them for dumping the numnber of porpoises in
 	 * them.
 	 */
-	private void addBlocks(final int[][] blocks, final ContinuousSpace<Agent> space, final Grid<Agent> grid,
-			final Context<Agent> context) {
-		int maxBlock = -1;
-
-		for (int x = 0; x < blocks.length; x++) {
-			for (int y = 0; y < blocks[x].length; y++) {
-				if (blocks[x][y] > maxBlock) {
-					maxBlock = blocks[x][y];
-				}
-			}
-		}
-
-		Block.initialize(maxBlock + 1);
+	private void addBlocks(final BlockCounter blockCounter, final Context<Agent> context) {
+		Block.initialize(blockCounter);
 
-		for (int i = 0; i < (maxBlock + 1); i++) {
-			final Block b = new Block(i, context);
+		for (int i = 0; i < blockCounter.getNumBlocks(); i++) {
+			final Block b = new Block(i);
 			context.add(b);
 		}
 	}
@@ -28,20 +28,21 @@
 package dk.au.bios.porpoise;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.SplittableRandom;
 
-import dk.au.bios.porpoise.ships.Buoy;
+import dk.au.bios.porpoise.landscape.HydrophoneArray;
 import dk.au.bios.porpoise.ships.JomopansEchoSPL;
 import dk.au.bios.porpoise.ships.Route;
+import dk.au.bios.porpoise.ships.RouteBuoys;
+import dk.au.bios.porpoise.ships.ShipDeterrence;
+import dk.au.bios.porpoise.ships.ShipDeterrenceBuffer;
+import dk.au.bios.porpoise.ships.TransmissionLossTable;
 import dk.au.bios.porpoise.ships.VesselClass;
 import dk.au.bios.porpoise.ships.WestonFlux;
 import dk.au.bios.porpoise.util.SimulationTime;
-import repast.simphony.engine.schedule.ScheduledMethod;
+import repast.simphony.random.RandomHelper;
 import repast.simphony.space.continuous.NdPoint;
-import repast.simphony.util.ContextUtils;
 
 /**
  * A ship agent. This is used in the Kattegat simulation and is not relevant for the current DEPONS model.
@@ -51,6 +52,7 @@ public class Ship extends SoundSource implements dk.au.bios.porpoise.ships.Ship
 	public static double MAX_DETER_DIST = 10.0d * 1000;  // Max deter dist is 10km, regardless of dmax_deter value
 
 	private static final int JOMOPANS_BAND = 12;
+	private static final int TICK_STEPS = ShipDeterrence.STEPS;  // Number of sub-steps the ship deterrence is evaluated at per tick
 	private static final double WATER_TEMP = 10.0d;
 
 	private static final double VHF_WEIGHTING = vhfWeighting();
@@ -63,10 +65,27 @@ public class Ship extends SoundSource implements dk.au.bios.porpoise.ships.Ship
 	private Route route;
 	private int tickStart = -1;
 	private int tickEnd = Integer.MAX_VALUE;
+	private double[] buoyGridX;  // Grid coordinates of the buoys, converted from UTM once
+	private double[] buoyGridY;
+	private int[] buoyPause;
+	private double[] legSpeeds;
+	private double[] legSourceLevels;  // Source level per route leg, indexed as the buoys
 
 	private int currentBuoyIdx = -1;
 	private int ticksStillPaused = 0;
 
+	private final double[] stepX = new double[TICK_STEPS];
+	private final double[] stepY = new double[TICK_STEPS];
+	private final TransmissionLossTable.Source[] stepSources = new TransmissionLossTable.Source[TICK_STEPS];
+
+	private ShipDeterrenceBuffer deterrenceBuffer;
+	private boolean deterredThisTick = false;
+	private double tickSourceLevel;
+	private HydrophoneArray.Batch hydrophoneBatch;
+	private NdPoint tickEndPos;
+	private int randomStreamIndex = -1;
+	private SplittableRandom reactionRandom;
+
 	public Ship() {
 		super();
 	}
@@ -115,6 +134,7 @@ public class Ship extends SoundSource implements dk.au.bios.porpoise.ships.Ship
 
 	public void setType(VesselClass type) {
 		this.type = type;
+		this.legSourceLevels = null;
 	}
 
 	public double getLength() {
@@ -123,6 +143,7 @@ public class Ship extends SoundSource implements dk.au.bios.porpoise.ships.Ship
 
 	public void setLength(double length) {
 		this.length = length;
+		this.legSourceLevels = null;
 	}
 
 	public Route getRoute() {
@@ -131,19 +152,24 @@ public class Ship extends SoundSource implements dk.au.bios.porpoise.ships.Ship
 
 	public void setRoute(Route route) {
 		this.route = route;
+		releaseRoute();
 	}
 
 	public void initialize() {
-		this.setPosition(route.getRoute().get(0).getNdPoint());
+		compileRoute();
+		this.setPosition(buoyPoint(0));
 
-		if (route.getRoute().size() > 1) {
-			facePoint(route.getRoute().get(1).getNdPoint());
+		if (buoyGridX.length > 1) {
+			facePoint(buoyPoint(1));
 		} else {
-			facePoint(route.getRoute().get(0).getNdPoint());			
+			facePoint(buoyPoint(0));
 		}
 	}
-	
-	@ScheduledMethod(start = 0, interval = 1, priority = AgentPriority.SHIP_MOVE)
+
+	/**
+	 * Moves the ship to the next buoy of its route. Ships are not scheduled individually; the ships loaded for a
+	 * simulation are moved by the {@link dk.au.bios.porpoise.ships.ShipTimeline} while they are active.
+	 */
 	public void move() {
 		if (SimulationTime.getTick() < tickStart) {
 			return;
@@ -157,72 +183,159 @@ public class Ship extends SoundSource implements dk.au.bios.porpoise.ships.Ship
 			return;
 		} 
 
+		if (buoyGridX == null) {
+			compileRoute();
+		}
+
 		currentBuoyIdx++;
-		if (currentBuoyIdx >= route.getRoute().size()) {
+		if (currentBuoyIdx >= buoyGridX.length) {
 			currentBuoyIdx = 0;  // repeat the route from the beginning
 		}
 
-		var buoy = route.getRoute().get(currentBuoyIdx);
-		setPosition(buoy.getNdPoint());
+		setPosition(buoyPoint(currentBuoyIdx));
 
-		if (buoy.getPause() > 0) {
-			ticksStillPaused = buoy.getPause();
+		if (buoyPause[currentBuoyIdx] > 0) {
+			ticksStillPaused = buoyPause[currentBuoyIdx];
 		}
 		
 		var nextBuoy = findNextBuoy();
-		nextBuoy.ifPresent(b -> {
-			this.facePoint(b.getNdPoint());
-		});
+		if (nextBuoy >= 0) {
+			this.facePoint(buoyPoint(nextBuoy));
+		}
 	}
 
-	private Optional<Buoy> findNextBuoy() {
+	/**
+	 * @return The index of the buoy the ship sails towards during this tick, or -1 if it does not move
+	 */
+	private int findNextBuoy() {
 		if (SimulationTime.getTick() + 1 < tickStart) {
-			return Optional.empty();
+			return -1;
 		}
 		if (SimulationTime.getTick() + 1 > tickEnd) {
-			return Optional.empty();
+			return -1;
 		}
 
 		if (ticksStillPaused > 0) {
-			return Optional.empty();
+			return -1;
 		} else {
 			int nextBuoy = currentBuoyIdx + 1;
-			if (nextBuoy >= route.getRoute().size()) {
-				return Optional.empty();
+			if (nextBuoy >= buoyGridX.length) {
+				return -1;
 			}
-			var buoy = route.getRoute().get(nextBuoy);
-			return Optional.of(buoy);
+			return nextBuoy;
 		}
 	}
 
+	private NdPoint buoyPoint(int buoyIdx) {
+		return new NdPoint(buoyGridX[buoyIdx], buoyGridY[buoyIdx]);
+	}
+
 	@Override
 	public void deterPorpoise() {
+		if (calculateDeterrence(null)) {
+			updateHydrophones();
+		}
+	}
+
+	/**
+	 * Calculates the deterrence of the porpoises into the buffer of the ship, without modifying the porpoises. Ships
+	 * can do this concurrently, see {@link #applyDeterrence()}. The reaction of the porpoises is drawn from the random
+	 * stream of the ship.
+	 */
+	public void calculateDeterrence() {
+		if (deterrenceBuffer == null) {
+			deterrenceBuffer = new ShipDeterrenceBuffer();
+		}
+		deterredThisTick = calculateDeterrence(deterrenceBuffer);
+	}
+
+	/**
+	 * Applies the deterrence calculated by {@link #calculateDeterrence()} to the porpoises and hydrophones.
+	 */
+	public void applyDeterrence() {
+		if (deterredThisTick) {
+			deterrenceBuffer.applyTo(this);
+			updateHydrophones();
+			deterredThisTick = false;
+		}
+	}
+
+	/**
+	 * @param buffer The buffer to record the deterrence in, or null to record it directly on the porpoises
+	 * @return True if the ship is sailing this tick
+	 */
+	private boolean calculateDeterrence(ShipDeterrenceBuffer buffer) {
 		if (currentBuoyIdx < 0) {
-			return;
+			return false;
 		}
 		if (ticksStillPaused > 0) {
-			return;
+			return false;
+		}
+
+		final double sourceLevel = calculateSourceLevel();
+		final boolean isDay = SimulationTime.isDaytime();
+		final NdPoint startPos = this.getPosition();
+		final NdPoint endPos = findNextBuoyPoint();
+		interpolateStep(startPos, endPos, stepX, stepY);
+		for (int step = 0; step < TICK_STEPS; step++) {
+			stepSources[step] = getTransmissionLossSource(stepX[step], stepY[step]);
 		}
 
-		double sourceLevel = calculateSourceLevel();
-		boolean isDay = SimulationTime.isDaytime();
-		var startPos = this.getPosition();
-		var endPos = findNextBuoyPoint();
-		var tickSteps = interpolateStep(startPos, endPos);
-		Set<Porpoise> porps = Globals.getSpatialPartitioning().getPorpoisesInNeighborhood(startPos, endPos);
-		Iterator<Porpoise> porpsIter = porps.iterator();
-
-		while (porpsIter.hasNext()) {
-			final Porpoise p = porpsIter.next();
-			
-			int step = 0;
-			for (NdPoint position : tickSteps) {
-				final double distToShip = Globals.convertGridDistanceToUtm(position, p.getPosition());
-
-				if (distToShip > SimulationParameters.getDeterMinDistanceShips()
-						&& distToShip <= MAX_DETER_DIST
-						&& distToShip <= SimulationParameters.getDeterMaxDistance()) {
-					double receivedLevel = calculateReceivedLevelFor(sourceLevel, position, distToShip);
+		final double minDeterDistUtm = SimulationParameters.getDeterMinDistanceShips();
+		final double maxDeterDistUtm = Math.min(MAX_DETER_DIST, SimulationParameters.getDeterMaxDistance());
+		final double maxDeterDist = Globals.convertUtmDistanceToGrid(maxDeterDistUtm);
+		// Slightly enlarged, so rounding never culls a sub-step within the max deterrence distance
+		final double cullDistSq = Math.pow(maxDeterDist * (1.0d + 1e-9), 2);
+		final boolean periodic = Globals.getSpace().isPeriodic();
+		final double segX = startPos.getX();
+		final double segY = startPos.getY();
+		final double segVx = endPos.getX() - segX;
+		final double segVy = endPos.getY() - segY;
+		final double segLengthSq = segVx * segVx + segVy * segVy;
+
+		Globals.getSpatialPartitioning().forEachNearSegment(startPos, endPos, maxDeterDist, p -> {
+			final NdPoint porpPos = p.getPosition();
+			final double px = porpPos.getX();
+			final double py = porpPos.getY();
+
+			int firstStep = 0;
+			int lastStep = TICK_STEPS - 1;
+			if (!periodic) {
+				// The interval of the segment (t in [0;1]) within the max deterrence distance of the porpoise
+				final double dx = px - segX;
+				final double dy = py - segY;
+				final double c = dx * dx + dy * dy - cullDistSq;
+				if (segLengthSq > 0.0d) {
+					final double b = -2.0d * (dx * segVx + dy * segVy);
+					final double discriminant = b * b - 4.0d * segLengthSq * c;
+					if (discriminant < 0.0d) {
+						return;
+					}
+					final double sqrtDiscriminant = Math.sqrt(discriminant);
+					final double tFrom = (-b - sqrtDiscriminant) / (2.0d * segLengthSq);
+					final double tTo = (-b + sqrtDiscriminant) / (2.0d * segLengthSq);
+					if (tFrom > 1.0d || tTo < 0.0d) {
+						return;
+					}
+					// Sub-step i is at t = (i + 1) / TICK_STEPS. Widened by one sub-step as each is checked below.
+					firstStep = Math.max(0, (int) Math.ceil(Math.max(0.0d, tFrom) * TICK_STEPS) - 2);
+					lastStep = Math.min(TICK_STEPS - 1, (int) Math.floor(Math.min(1.0d, tTo) * TICK_STEPS));
+				} else if (c > 0.0d) {
+					return;
+				}
+			}
+
+			for (int step = firstStep; step <= lastStep; step++) {
+				final double distToShip = Globals
+						.convertGridDistanceToUtm(distance(stepX[step], stepY[step], px, py, periodic));
+
+				if (distToShip > minDeterDistUtm && distToShip <= maxDeterDistUtm) {
+					final double receivedLevel;
+					if (stepSources[step] != null) {
+						receivedLevel = sourceLevel - stepSources[step].propagationLoss(distToShip);
+					} else {
+						receivedLevel = 0.0d; // Missing data, no sound is produced
+					}
 					double receivedLevelVHF = receivedLevel + VHF_WEIGHTING;
 					if (receivedLevelVHF < 0) {
 						receivedLevelVHF = 0;
@@ -231,8 +344,8 @@ public class Ship extends SoundSource implements dk.au.bios.porpoise.ships.Ship
 					if (receivedLevelVHF > 0) {
 						var theProbOfReacting = predictProbResponse(receivedLevelVHF, distToShip / 1000.0d, isDay);
 
-						double deterVxUnscaled = p.getPosition().getX() - position.getX();
-						double deterVyUnscaled = p.getPosition().getY() - position.getY();
+						double deterVxUnscaled = px - stepX[step];
+						double deterVyUnscaled = py - stepY[step];
 
 						double deterVLength = distToShip;
 						double deterVxUnity = deterVxUnscaled / deterVLength;
@@ -240,77 +353,177 @@ public class Ship extends SoundSource implements dk.au.bios.porpoise.ships.Ship
 
 						var deterMagnitude = predictMag(receivedLevelVHF, distToShip / 1000.0d, isDay);
 
-						var reactingOrNot = Globals.getRandomSource().nextDouble() < theProbOfReacting ? 1 : 0;
+						final double reactionDraw = buffer != null ? nextReactionDraw()
+								: Globals.getRandomSource().nextDouble();
+						var reactingOrNot = reactionDraw < theProbOfReacting ? 1 : 0;
 						var deterXStep = deterVxUnity * deterMagnitude * reactingOrNot;
 						var deterYStep = deterVyUnity * deterMagnitude * reactingOrNot;
 
-						p.deterShipStep(step, this, deterXStep, deterYStep, deterMagnitude, receivedLevelVHF);
+						if (buffer != null) {
+							buffer.add(p, step, deterXStep, deterYStep, deterMagnitude, receivedLevelVHF);
+						} else {
+							p.deterShipStep(step, this, deterXStep, deterYStep, deterMagnitude, receivedLevelVHF);
+						}
 					}
 				}
-				step++;
 			}
+		});
+
+		tickSourceLevel = sourceLevel;
+		tickEndPos = endPos;
+		return true;
+	}
+
+	/**
+	 * Records the received level of the ship at the hydrophones within the maximum distance. The transmission loss
+	 * source at the ship is the same for all hydrophones, so it is looked up once per ship.
+	 */
+	private void updateHydrophones() {
+		if (hydrophoneBatch == null) {
+			hydrophoneBatch = new HydrophoneArray.Batch();
+		}
+		Globals.getHydrophones().findWithin(tickEndPos, SimulationParameters.getHydrophoneMaxDistance(),
+				hydrophoneBatch);
+		if (hydrophoneBatch.size() == 0) {
+			return;
 		}
-		
-		Iterator<Hydrophone> hydrophones = ContextUtils.getContext(this).getObjects(Hydrophone.class).iterator();
 
-		while (hydrophones.hasNext()) {
-			var hydrophone = hydrophones.next();
+		final TransmissionLossTable.Source source = getTransmissionLossSource(tickEndPos.getX(), tickEndPos.getY());
+		for (int i = 0; i < hydrophoneBatch.size(); i++) {
+			// If we are missing data, then set produced sound to 0.0
+			final double receivedLevel = source != null
+					? tickSourceLevel - source.propagationLoss(hydrophoneBatch.getDistance(i))
+					: 0.0d;
+			hydrophoneBatch.getHydrophone(i).receiveSoundLevel(this, tickEndPos, tickSourceLevel, receivedLevel);
+		}
+	}
 
-			final double distToShip = Globals.convertGridDistanceToUtm(endPos, hydrophone.getPosition());
-			final double receivedLevel = calculateReceivedLevelFor(sourceLevel, endPos, distToShip);
+	/**
+	 * Draws from the random stream of the ship. The stream is seeded from the simulation seed and the index of the
+	 * ship, so the draws do not depend on the order the ships are processed in.
+	 */
+	private double nextReactionDraw() {
+		if (reactionRandom == null) {
+			final long index = randomStreamIndex >= 0 ? randomStreamIndex : getId();
+			reactionRandom = new SplittableRandom(RandomHelper.getSeed() * 0x9E3779B97F4A7C15L + index);
+		}
+		return reactionRandom.nextDouble();
+	}
 
-			hydrophone.receiveSoundLevel(this, endPos, sourceLevel, receivedLevel);
+	public void setRandomStreamIndex(int randomStreamIndex) {
+		this.randomStreamIndex = randomStreamIndex;
+		this.reactionRandom = null;
+	}
+
+	/**
+	 * The distance in grid units between two points, as calculated by the space.
+	 */
+	private static double distance(double x1, double y1, double x2, double y2, boolean periodic) {
+		double dx = Math.abs(x2 - x1);
+		double dy = Math.abs(y2 - y1);
+		if (periodic) {
+			dx = Math.min(dx, Globals.getWorldWidth() - dx);
+			dy = Math.min(dy, Globals.getWorldHeight() - dy);
 		}
+		return Math.sqrt(dx * dx + dy * dy);
 	}
 
 	protected NdPoint findNextBuoyPoint() {
-		Optional<Buoy> nextBuoy = findNextBuoy();
-		var endBuoy = nextBuoy.map(Buoy::getNdPoint).orElse(getPosition());
-		return endBuoy;
+		final int nextBuoy = findNextBuoy();
+		return nextBuoy >= 0 ? buoyPoint(nextBuoy) : getPosition();
 	}
 
 	protected List<NdPoint> interpolateStep(NdPoint start, NdPoint end) {
-		final int steps = 30;
-		List<NdPoint> points = new ArrayList<>(steps);
-		double[] stepVector = {
-				end.getX() - start.getX(),
-				end.getY() - start.getY()
-		};
-		for (int i = 1; i <= steps; i++) {
-			var stepScale = ((double) i) / ((double)steps);
-			var stepPos = new NdPoint(start.getX() + (stepVector[0] * stepScale), start.getY() + (stepVector[1] * stepScale));
-			
-			points.add(stepPos);
+		final double[] xs = new double[TICK_STEPS];
+		final double[] ys = new double[TICK_STEPS];
+		interpolateStep(start, end, xs, ys);
+
+		List<NdPoint> points = new ArrayList<>(TICK_STEPS);
+		for (int i = 0; i < TICK_STEPS; i++) {
+			points.add(new NdPoint(xs[i], ys[i]));
 		}
 
 		return points;
 	}
 
+	/**
+	 * Calculates the sub-step positions of the ship during a tick, the last being the end position.
+	 */
+	private void interpolateStep(NdPoint start, NdPoint end, double[] xs, double[] ys) {
+		final double stepVectorX = end.getX() - start.getX();
+		final double stepVectorY = end.getY() - start.getY();
+		for (int i = 1; i <= TICK_STEPS; i++) {
+			var stepScale = ((double) i) / ((double) TICK_STEPS);
+			xs[i - 1] = start.getX() + (stepVectorX * stepScale);
+			ys[i - 1] = start.getY() + (stepVectorY * stepScale);
+		}
+	}
+
 	private double calculateSourceLevel() {
-		final double decidecadeBandSourceLevel = splCalc.calculate(type, getSpeed(), length, JOMOPANS_BAND);
-		return decidecadeBandSourceLevel;
+		if (legSourceLevels == null) {
+			compileRoute();
+		}
+		return legSourceLevels[currentBuoyIdx];
+	}
+
+	/**
+	 * Converts the buoys of the route to grid coordinates and calculates the source level of each leg. The source level
+	 * only changes with the speed of the current leg, so neither has to be calculated while the ship sails. The speeds
+	 * are kept too, so the route never has to be read again while the ship sails.
+	 */
+	private void compileRoute() {
+		final RouteBuoys buoys = route.getBuoys();
+		final double[] xs = new double[buoys.size()];
+		final double[] ys = new double[buoys.size()];
+		final int[] pauses = new int[buoys.size()];
+		final double[] speeds = new double[buoys.size()];
+		final double[] levels = new double[buoys.size()];
+		for (int i = 0; i < levels.length; i++) {
+			xs[i] = Globals.convertUtmXToGrid(buoys.getX(i));
+			ys[i] = Globals.convertUtmYToGrid(buoys.getY(i));
+			pauses[i] = buoys.getPause(i);
+			speeds[i] = buoys.getSpeed(i);
+			levels[i] = splCalc.calculate(type, speeds[i], length, JOMOPANS_BAND);
+		}
+		buoyGridX = xs;
+		buoyGridY = ys;
+		buoyPause = pauses;
+		legSpeeds = speeds;
+		legSourceLevels = levels;
 	}
 
-	private double calculateReceivedLevelFor(double sourceLevel, NdPoint shipPos, double distToShip) {
-		final double depthAtShip = Globals.getCellData().getDepth(shipPos);
-		final double grainSize = Globals.getCellData().getSediment(shipPos);
+	/**
+	 * Releases the route data of the ship. It is compiled again from the route if the ship sails again, which for
+	 * routes loaded on demand means reading the route again.
+	 */
+	public void releaseRoute() {
+		buoyGridX = null;
+		buoyGridY = null;
+		buoyPause = null;
+		legSpeeds = null;
+		legSourceLevels = null;
+	}
+
+	/**
+	 * @return The propagation loss terms for the environment at the position, or null if data is missing.
+	 */
+	private TransmissionLossTable.Source getTransmissionLossSource(double x, double y) {
+		final int gridX = ndXToGridX(x);
+		final int gridY = ndYToGridY(y);
+		final double depthAtShip = Globals.getCellData().getDepth(gridX, gridY);
+		final double grainSize = Globals.getCellData().getSediment(gridX, gridY);
 		final double temp = WATER_TEMP;
-		final double salinity = Globals.getCellData().getSalinity(shipPos);
+		final double salinity = Globals.getCellData().getSalinity(gridX, gridY);
 
-		// If we are missing data, then set produced sound to 0.0
 		if (valueIsNoData(depthAtShip) ||
 			valueIsNoData(grainSize) ||
 			valueIsNoData(salinity)) {
-			return 0.0d;
+			return null;
 		}
 
-		final double soundTransmissionLoss = WestonFlux.calc(distToShip, depthAtShip, grainSize, temp, salinity);
-		
-		final double receivedLevel = sourceLevel - soundTransmissionLoss;
-		
-		return receivedLevel;
+		return TransmissionLossTable.getSource(depthAtShip, grainSize, temp, salinity);
 	}
-	
+
 	private boolean valueIsNoData(double value) {
 		return value <= -9999;
 	}
@@ -328,7 +541,10 @@ public class Ship extends SoundSource implements dk.au.bios.porpoise.ships.Ship
 	}
 	
 	protected double getSpeed() {
-		return this.route.getRoute().get(currentBuoyIdx).getSpeed();
+		if (legSpeeds == null) {
+			compileRoute();
+		}
+		return legSpeeds[currentBuoyIdx];
 	}
 
 	@Override
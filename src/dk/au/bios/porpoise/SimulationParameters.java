@@ -94,6 +94,13 @@ public final class SimulationParameters {
 	 */
 	private static double deterMinDistanceShips = 0.1d * 1000; // 100m
 
+	/**
+	 * Maximum distance at which hydrophones receive ship noise. Hydrophones further away from a ship are not
+	 * updated for it. Parameter is specified in KM but stored in this variable in meters. In parameter.xml:
+	 * dmax_hydrophone
+	 */
+	private static double hydrophoneMaxDistance = 1000.0 * 1000; // 1000 KM
+
 	private static double pship_int_day = -3.0569351d;  // pship_int_day - intercept of equation defining effect of ship noise &amp; distance on prob reacting during daylight
 	private static double pship_int_night = -3.233771d;  // pship_int_night - intercept of equation defining effect of ship noise &amp; distance on prob reacting during darkness
 	private static double cship_int_day = 2.9647996d;  // cship_int_day - intercept of equation defining effect of ship noise & distance on mag reacting during daylight
@@ -238,6 +245,18 @@ public final class SimulationParameters {
 
 	private static Double psmLog;
 
+	/**
+	 * Number of worker threads used for parallel work. 0 uses all available processors. In parameters.xml:
+	 * parallelism
+	 */
+	private static int parallelism = 0;
+
+	/**
+	 * Calculate the ship deterrence concurrently. The porpoise reactions are then drawn from a random stream per
+	 * ship. In parameters.xml: shipDeterrenceParallel
+	 */
+	private static boolean shipDeterrenceParallel = false;
+
 	public static void initialize(final Parameters params) {
 		landscape = params.getString("landscape");
 		turbines = params.getString("turbines");
@@ -258,6 +277,7 @@ public final class SimulationParameters {
 		deterDecay = convertStringToDouble(params, "Psi_deter");
 		deterMaxDistance = convertStringToDouble(params, "dmax_deter") * 1000; // entered in KM but stored in meters.
 		deterMinDistanceShips = convertStringToDouble(params, "dmin_deter_ships") * 1000;  // entered in KM but stored in meters.
+		hydrophoneMaxDistance = convertStringToDouble(params, "dmax_hydrophone") * 1000;  // entered in KM but stored in meters.
 		pship_int_day = convertStringToDouble(params, "pship_int_day");
 		pship_int_night = convertStringToDouble(params, "pship_int_night");
 		cship_int_day = convertStringToDouble(params, "cship_int_day");
@@ -332,6 +352,8 @@ public final class SimulationParameters {
 		tDisp = params.getInteger("tdisp");
 		foodGrowthRate = convertStringToDouble(params, "rU");
 		bycatchProb = convertStringToDouble(params, "bycatchProb");
+		parallelism = params.getInteger("parallelism");
+		shipDeterrenceParallel = params.getBoolean("shipDeterrenceParallel");
 	}
 	
 	public static void resetToDefaultsForUnitTest() {
@@ -354,6 +376,7 @@ public final class SimulationParameters {
 		deterDecay = 50.0;
 		deterMaxDistance = 1000.0 * 1000; // in KM
 		deterMinDistanceShips = 0.1d * 1000; // 100m
+		hydrophoneMaxDistance = 1000.0 * 1000; // 1000 KM
 		alphaHat = 0.0;
 		betaHat = 20.0;
 		meanDispDist = 1.05;
@@ -403,6 +426,8 @@ public final class SimulationParameters {
 		noiseNightMag = 0.0d;
 		distNightMag = 0.0284629d;
 		noisedistNightMag = 0.0d;
+		parallelism = 1;
+		shipDeterrenceParallel = false;
 	}
 
 	public static void resetToDefaultsForOldUnitTest() {
@@ -424,6 +449,7 @@ public final class SimulationParameters {
 		deterResponseThreshold = 158;
 		deterDecay = 50;
 		deterMaxDistance = 50 * 1000; // 50 KM
+		hydrophoneMaxDistance = 1000.0 * 1000; // 1000 KM
 		alphaHat = 0;
 		betaHat = 20;
 		meanDispDist = 1.6;
@@ -455,6 +481,8 @@ public final class SimulationParameters {
 		foodGrowthRate = 0.10;
 		bycatchProb = 0.0;
 		psmLog = null;
+		parallelism = 1;
+		shipDeterrenceParallel = false;
 	}
 
 	public static void disableCrwRandomness() {
@@ -551,6 +579,14 @@ public final class SimulationParameters {
 		return deterMinDistanceShips;
 	}
 
+	public static double getHydrophoneMaxDistance() {
+		return hydrophoneMaxDistance;
+	}
+
+	public static void setHydrophoneMaxDistance(double hydrophoneMaxDistance) {
+		SimulationParameters.hydrophoneMaxDistance = hydrophoneMaxDistance;
+	}
+
 	public static double getShipInterceptDayProb() {
 		return pship_int_day;
 	}
@@ -741,6 +777,18 @@ public final class SimulationParameters {
 		return bycatchProb;
 	}
 
+	public static int getParallelism() {
+		return parallelism;
+	}
+
+	public static boolean isShipDeterrenceParallel() {
+		return shipDeterrenceParallel;
+	}
+
+	public static void setShipDeterrenceParallel(boolean shipDeterrenceParallel) {
+		SimulationParameters.shipDeterrenceParallel = shipDeterrenceParallel;
+	}
+
 	/**
 	 * Used for unit testing - until a better model for setting variables is found.
 	 *
@@ -31,7 +31,6 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import dk.au.bios.porpoise.util.DebugLog;
 import repast.simphony.context.Context;
-import repast.simphony.query.space.continuous.ContinuousWithin;
 import repast.simphony.space.continuous.NdPoint;
 
 /**
@@ -77,30 +76,27 @@ public class SoundSource extends Agent {
 		// i.e. porps <deter-dist away (although porps can hear only ships <200 away,
 		// the dist has to be larger to
 		// account for porp jumping)
-		final ContinuousWithin<Agent> affectedSpace = new ContinuousWithin<Agent>(this.getSpace(), this, radius);
-		final Iterable<Agent> agents = affectedSpace.query();
-
-		for (final Agent a : agents) {
-			if (a instanceof Porpoise) {
-				final Porpoise p = (Porpoise) a;
-				final double distToSound = Globals.convertGridDistanceToUtm(getPosition(), p.getPosition());
-				if (distToSound <= SimulationParameters.getDeterMaxDistance()) {
-					// deterring-strength decreases linearly with distance to turbine, decreases to 0 at 400 m
-					final double currentDeterence = impact
-							- (SimulationParameters.getBetaHat() * Math.log10(distToSound)
-									+ (SimulationParameters.getAlphaHat() * distToSound))
-							- SimulationParameters.getDeterResponseThreshold();
-
-					if (currentDeterence > 0) {
-						p.deter(currentDeterence, this);
-					}
-
-					if (DebugLog.isEnabledFor(8)) {
-						DebugLog.print8("who: {} dist-to-sound {}: {}", p.getId(), this, distToSound);
-					}
+		final double queryRadius = Math.min(radius,
+				Globals.convertUtmDistanceToGrid(SimulationParameters.getDeterMaxDistance()));
+
+		Globals.getSpatialPartitioning().forEachWithinRadius(getPosition(), queryRadius, (p, dist) -> {
+			final double distToSound = Globals.convertGridDistanceToUtm(dist);
+			if (distToSound <= SimulationParameters.getDeterMaxDistance()) {
+				// deterring-strength decreases linearly with distance to turbine, decreases to 0 at 400 m
+				final double currentDeterence = impact
+						- (SimulationParameters.getBetaHat() * Math.log10(distToSound)
+								+ (SimulationParameters.getAlphaHat() * distToSound))
+						- SimulationParameters.getDeterResponseThreshold();
+
+				if (currentDeterence > 0) {
+					p.deter(currentDeterence, this);
+				}
+
+				if (DebugLog.isEnabledFor(8)) {
+					DebugLog.print8("who: {} dist-to-sound {}: {}", p.getId(), this, distToSound);
 				}
 			}
-		}
+		});
 	}
 
 }
@@ -30,16 +30,12 @@ package dk.au.bios.porpoise;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 import dk.au.bios.porpoise.util.DebugLog;
 import dk.au.bios.porpoise.util.SimulationTime;
 import repast.simphony.context.Context;
-import repast.simphony.query.space.continuous.ContinuousWithin;
-import repast.simphony.space.SpatialException;
 import repast.simphony.space.continuous.NdPoint;
 
 /**
@@ -50,11 +46,11 @@ import repast.simphony.space.continuous.NdPoint;
 public class Turbine extends Agent {
 
 	/**
-	 * Hold a sorted list of turbines to create. If this is not null, the turbines
+	 * The schedule of turbines to create. If this is not null, the turbines
 	 * will be dynamically added and removed from the context based on their start
 	 * and end tick.
 	 */
-	private static LinkedList<Turbine> turbineCreateQueue;
+	private static TurbineSchedule turbineSchedule;
 
 	private final String name;
 
@@ -67,6 +63,9 @@ public class Turbine extends Agent {
 	private final int startTick;
 	private final int endTick;
 
+	/** Deterrence bounds for this turbine, looked up when it is activated. */
+	private TurbineDeterrenceRaster raster;
+
 	protected Turbine(final String name, final double impact, final double locX, final double locY, final int startTick,
 			final int endTick, final int id) {
 		super(id);
@@ -89,11 +88,8 @@ public class Turbine extends Agent {
 	 */
 	public static void load(final Context<Agent> context, final String fileName, final boolean dynamicCreation)
 			throws Exception {
-		if (dynamicCreation) {
-			turbineCreateQueue = new LinkedList<>();
-		} else {
-			turbineCreateQueue = null;
-		}
+		final List<Turbine> turbineCreateQueue = dynamicCreation ? new ArrayList<>() : null;
+		turbineSchedule = null;
 
 		final File file = new File("data/wind-farms", fileName + ".txt");
 		int numTurbines = 0;
@@ -135,71 +131,33 @@ public class Turbine extends Agent {
 		if (turbineCreateQueue != null) {
 			if (numTurbines < 1) {
 				System.out.println("No wind turbines plotted");
-			} else {
-				Collections.sort(turbineCreateQueue, new Comparator<Turbine>() {
-					@Override
-					public int compare(final Turbine o1, final Turbine o2) {
-						if (o1.startTick > o2.startTick) {
-							return 1;
-						} else if (o1.startTick == o2.startTick) {
-							return 0;
-						} else {
-							return -1;
-						}
-					}
-				});
 			}
+			turbineSchedule = new TurbineSchedule(turbineCreateQueue);
 		}
 	}
 
 	public static void activateTurbines(final Context<Agent> context) {
-		if (turbineCreateQueue == null) {
+		if (turbineSchedule == null) {
 			return; // Turbines not loaded or not using dynamic creation
 		}
 
-		final double now = SimulationTime.getTick();
-		do {
-			if (turbineCreateQueue.isEmpty()) {
-				break;
-			}
-			final Turbine first = turbineCreateQueue.getFirst();
-			if (first != null && first.startTick <= now) {
-				context.add(first);
-				try {
-					first.initialize();
-				} catch (final SpatialException e) {
-					context.remove(first);
-					System.err.println("Did not add turbine " + first.name + " due to an error." + e.getMessage());
-				}
-				turbineCreateQueue.removeFirst();
-			} else {
-				break;
-			}
-		} while (true);
+		turbineSchedule.activate(context, SimulationTime.getTick());
 	}
 
+	/**
+	 * Removes the turbines past their end tick. The remaining turbines have already deterred the porpoises this tick.
+	 */
 	public static void deactiveTurbines(final Context<Agent> context) {
-		if (turbineCreateQueue == null) {
+		if (turbineSchedule == null) {
 			return;
 		}
 
-		final double now = SimulationTime.getTick();
-		final List<Turbine> turbinesToRemove = new LinkedList<>();
-		for (final Agent a : context.getObjects(Turbine.class)) {
-			final Turbine t = (Turbine) a;
-			if (t.getEndTick() < now) {
-				turbinesToRemove.add(t);
-			} else {
-				t.deterPorpoise();
-			}
-		}
-		for (final Turbine t : turbinesToRemove) {
-			context.remove(t);
-		}
+		turbineSchedule.deactivate(context, SimulationTime.getTick());
 	}
 
 	public void initialize() {
 		this.setPosition(new NdPoint(locX, locY));
+		this.raster = TurbineDeterrenceRaster.forImpact(impact);
 	}
 
 	public void deterPorpoise() {
@@ -210,38 +168,74 @@ public class Turbine extends Agent {
 			// a turbine with a specific impact (where impact = sound source level (SL), in
 			// dB).
 			// this is the distance where the sound level drops below the threshold
-			final double radius = Math.pow(10, ((impact - SimulationParameters.getDeterResponseThreshold()) / 20));
-			final ContinuousWithin<Agent> affectedSpace = new ContinuousWithin<Agent>(this.getSpace(), this, radius);
-			final Iterable<Agent> agents = affectedSpace.query();
-			for (final Agent a : agents) {
-				if (a instanceof Porpoise) {
-					final Porpoise p = (Porpoise) a;
-					final double distToTurb = Globals.convertGridDistanceToUtm(getPosition(), p.getPosition());
-					if (distToTurb <= SimulationParameters.getDeterMaxDistance()) {
-						// current amount of deterring
-						// the received-level (RL) gives the amount of noise that the porpoise is
-						// exposed to
-						// at a given distance, assuming cylindrical sound spreading; RL = SL �
-						// 20Log10(dist)
-						final double currentDeterence = impact
-								- (SimulationParameters.getBetaHat() * Math.log10(distToTurb)
-										+ (SimulationParameters.getAlphaHat() * distToTurb))
-								- SimulationParameters.getDeterResponseThreshold();
-
-						if (currentDeterence > 0) {
-							p.deter(currentDeterence, this);
+			if (raster == null || !raster.isFor(impact)) {
+				raster = TurbineDeterrenceRaster.forImpact(impact);
+			}
+			final boolean debug = DebugLog.isEnabledFor(8);
+			final double queryRadius;
+			if (debug) {
+				final double radius = Math.pow(10, ((impact - SimulationParameters.getDeterResponseThreshold()) / 20));
+				queryRadius = Math.min(radius,
+						Globals.convertUtmDistanceToGrid(SimulationParameters.getDeterMaxDistance()));
+			} else {
+				queryRadius = raster.getQueryRadius();
+			}
+			final NdPoint pos = getPosition();
+			final boolean periodic = Globals.getSpace().isPeriodic();
+			final double worldWidth = Globals.getSpace().getDimensions().getWidth();
+			final double worldHeight = Globals.getSpace().getDimensions().getHeight();
+			Globals.getSpatialPartitioning().forEachWithinRadius(pos, queryRadius, (p, dist) -> {
+				if (!debug) {
+					// Use the precomputed bounds to skip porpoises which cannot be affected, or which are already
+					// deterred more strongly by another source.
+					double offsetX = p.getPosition().getX() - pos.getX();
+					double offsetY = p.getPosition().getY() - pos.getY();
+					if (periodic) {
+						offsetX -= worldWidth * Math.rint(offsetX / worldWidth);
+						offsetY -= worldHeight * Math.rint(offsetY / worldHeight);
+					}
+					final int cell = raster.cellAt(offsetX, offsetY);
+					if (cell >= 0) {
+						if (raster.isSilent(cell)) {
+							return;
 						}
-
-						if (DebugLog.isEnabledFor(8)) {
-							DebugLog.print8("(porp {}) dist-to-turb {}: {} m, curr.deter: {}", p.getId(), this.name,
-									Math.round(distToTurb), Math.round(currentDeterence));
+						if (raster.isDominatedBy(cell, p.getDeterStrength())) {
+							// Does not change the deterrence, only deactivates dispersal
+							p.deter(raster.getMinDeterrence(cell), this);
+							return;
 						}
 					}
 				}
-			}
+
+				final double distToTurb = Globals.convertGridDistanceToUtm(dist);
+				if (distToTurb <= SimulationParameters.getDeterMaxDistance()) {
+					// current amount of deterring
+					// the received-level (RL) gives the amount of noise that the porpoise is
+					// exposed to
+					// at a given distance, assuming cylindrical sound spreading; RL = SL �
+					// 20Log10(dist)
+					final double currentDeterence = impact
+							- (SimulationParameters.getBetaHat() * Math.log10(distToTurb)
+									+ (SimulationParameters.getAlphaHat() * distToTurb))
+							- SimulationParameters.getDeterResponseThreshold();
+
+					if (currentDeterence > 0) {
+						p.deter(currentDeterence, this);
+					}
+
+					if (DebugLog.isEnabledFor(8)) {
+						DebugLog.print8("(porp {}) dist-to-turb {}: {} m, curr.deter: {}", p.getId(), this.name,
+								Math.round(distToTurb), Math.round(currentDeterence));
+					}
+				}
+			});
 		}
 	}
 
+	public String getName() {
+		return name;
+	}
+
 	public double getImpact() {
 		return impact;
 	}
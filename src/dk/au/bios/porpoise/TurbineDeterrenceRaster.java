@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Precomputed bounds on the deterrence caused by a turbine, indexed by the grid cell offset between a porpoise and the
+ * turbine.
+ *
+ * The deterrence is a function of the distance only, so turbines sharing impact and deterrence parameters share a
+ * raster. Each cell holds the lowest and highest deterrence possible for any position within the cell, which lets
+ * {@link Turbine#deterPorpoise()} skip porpoises that cannot be affected, or that are already more strongly deterred,
+ * without evaluating the sound propagation. The raster also yields the exact distance beyond which the received level
+ * is below the response threshold, which bounds the spatial query.
+ *
+ * The raster is only built when the deterrence decreases monotonically with distance (non-negative alpha and beta).
+ */
+final class TurbineDeterrenceRaster {
+
+	/** Tolerance applied when comparing against the bounds, covering rounding in the exact calculation. */
+	private static final double EPSILON = 1e-9;
+
+	/** Rasters larger than this (cells in each direction from the turbine) are not built. */
+	private static final int MAX_HALF_SIZE = 256;
+
+	private static final List<TurbineDeterrenceRaster> RASTERS = new ArrayList<>();
+
+	private final double impact;
+	private final double alphaHat;
+	private final double betaHat;
+	private final double responseThreshold;
+	private final double maxDistance;
+
+	/** Radius (grid units) within which a porpoise can be deterred. */
+	private final double queryRadius;
+
+	/** Number of cells on each side of the turbine, or 0 if no bounds are available. */
+	private final int halfSize;
+	private final int size;
+	private final double[] minDeterrence;
+	private final double[] maxDeterrence;
+
+	private TurbineDeterrenceRaster(final double impact) {
+		this.impact = impact;
+		this.alphaHat = SimulationParameters.getAlphaHat();
+		this.betaHat = SimulationParameters.getBetaHat();
+		this.responseThreshold = SimulationParameters.getDeterResponseThreshold();
+		this.maxDistance = SimulationParameters.getDeterMaxDistance();
+
+		// Query radius used before the raster was introduced, kept as an upper bound.
+		final double radius = Math.pow(10, ((impact - responseThreshold) / 20));
+		final double defaultRadius = Math.min(radius, Globals.convertUtmDistanceToGrid(maxDistance));
+
+		if (alphaHat < 0.0d || betaHat < 0.0d) {
+			this.queryRadius = defaultRadius;
+			this.halfSize = 0;
+		} else {
+			this.queryRadius = Math.min(defaultRadius, Globals.convertUtmDistanceToGrid(cutoffDistance()) + EPSILON);
+			final double cells = Math.ceil(queryRadius) + 1;
+			this.halfSize = cells <= MAX_HALF_SIZE ? (int) cells : 0;
+		}
+
+		this.size = 2 * halfSize;
+		this.minDeterrence = new double[size * size];
+		this.maxDeterrence = new double[size * size];
+		for (int j = 0; j < size; j++) {
+			final int oy = j - halfSize;
+			final double nearY = oy >= 0 ? oy : -(oy + 1);
+			final double farY = Math.max(Math.abs(oy), Math.abs(oy + 1));
+			for (int i = 0; i < size; i++) {
+				final int ox = i - halfSize;
+				final double nearX = ox >= 0 ? ox : -(ox + 1);
+				final double farX = Math.max(Math.abs(ox), Math.abs(ox + 1));
+				final double near = Globals.convertGridDistanceToUtm(Math.sqrt(nearX * nearX + nearY * nearY));
+				final double far = Globals.convertGridDistanceToUtm(Math.sqrt(farX * farX + farY * farY));
+				maxDeterrence[j * size + i] = near > 0.0d ? deterrence(near) : Double.POSITIVE_INFINITY;
+				minDeterrence[j * size + i] = deterrence(far);
+			}
+		}
+	}
+
+	/**
+	 * Returns the raster for a turbine with the given impact under the current simulation parameters.
+	 */
+	static synchronized TurbineDeterrenceRaster forImpact(final double impact) {
+		for (final TurbineDeterrenceRaster r : RASTERS) {
+			if (r.isFor(impact)) {
+				return r;
+			}
+		}
+		final TurbineDeterrenceRaster r = new TurbineDeterrenceRaster(impact);
+		RASTERS.removeIf(old -> !old.isCurrent());
+		RASTERS.add(r);
+		return r;
+	}
+
+	/**
+	 * Whether this raster was built for the given impact and the current simulation parameters.
+	 */
+	boolean isFor(final double impact) {
+		return this.impact == impact && isCurrent();
+	}
+
+	private boolean isCurrent() {
+		return alphaHat == SimulationParameters.getAlphaHat() && betaHat == SimulationParameters.getBetaHat()
+				&& responseThreshold == SimulationParameters.getDeterResponseThreshold()
+				&& maxDistance == SimulationParameters.getDeterMaxDistance();
+	}
+
+	/**
+	 * The deterrence at the given distance (in meters) from the turbine.
+	 */
+	double deterrence(final double distToTurb) {
+		return impact - (betaHat * Math.log10(distToTurb) + (alphaHat * distToTurb)) - responseThreshold;
+	}
+
+	double getQueryRadius() {
+		return queryRadius;
+	}
+
+	/**
+	 * Returns the index of the cell at the given offset (grid units) from the turbine, or -1 if the offset is not
+	 * covered by the raster.
+	 */
+	int cellAt(final double offsetX, final double offsetY) {
+		final double i = Math.floor(offsetX) + halfSize;
+		final double j = Math.floor(offsetY) + halfSize;
+		if (i < 0 || j < 0 || i >= size || j >= size) {
+			return -1;
+		}
+		return (int) j * size + (int) i;
+	}
+
+	/** True if no position in the cell receives a level above the response threshold. */
+	boolean isSilent(final int cell) {
+		return maxDeterrence[cell] < -EPSILON;
+	}
+
+	/**
+	 * True if every position in the cell is deterred, but by no more than the given strength. A porpoise in the cell
+	 * that is already deterred with that strength only needs its dispersal deactivated.
+	 */
+	boolean isDominatedBy(final int cell, final double strength) {
+		return minDeterrence[cell] > EPSILON && strength >= maxDeterrence[cell] + EPSILON;
+	}
+
+	double getMinDeterrence(final int cell) {
+		return minDeterrence[cell];
+	}
+
+	/**
+	 * The largest distance (meters, capped by the maximum deterrence distance) at which the deterrence is positive.
+	 * Assumes the deterrence decreases with distance.
+	 */
+	private double cutoffDistance() {
+		if (deterrence(maxDistance) > 0.0d) {
+			return maxDistance;
+		}
+		double lo = 0.0d;
+		double hi = maxDistance;
+		for (int i = 0; i < 64 && hi - lo > EPSILON; i++) {
+			final double mid = (lo + hi) / 2;
+			if (deterrence(mid) > 0.0d) {
+				lo = mid;
+			} else {
+				hi = mid;
+			}
+		}
+		return hi;
+	}
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import repast.simphony.context.Context;
+import repast.simphony.space.SpatialException;
+
+/**
+ * The piling schedule of dynamically created turbines. The turbines waiting to start are kept ordered by start tick
+ * and the active turbines in a priority queue ordered by end tick, so each tick only the turbines starting or ending
+ * are touched. This keeps the cost per tick independent of the size of the schedule, e.g. for cumulative scenarios
+ * with many wind farms.
+ */
+final class TurbineSchedule {
+
+	private static final Comparator<Turbine> BY_END = Comparator.comparingInt(Turbine::getEndTick)
+			.thenComparingLong(Turbine::getId);
+
+	private final Turbine[] starts;
+	private int nextStart = 0;
+
+	private final PriorityQueue<Turbine> ends = new PriorityQueue<>(BY_END);
+
+	/**
+	 * @param turbines The turbines in load order
+	 */
+	TurbineSchedule(final List<Turbine> turbines) {
+		this.starts = turbines.toArray(new Turbine[0]);
+		// Stable, turbines starting at the same tick are added in load order
+		Arrays.sort(starts, Comparator.comparingInt(Turbine::getStartTick));
+	}
+
+	/**
+	 * Adds the turbines which have started to the context.
+	 *
+	 * @param context The simulation context
+	 * @param now The current tick
+	 */
+	void activate(final Context<Agent> context, final double now) {
+		while (nextStart < starts.length && starts[nextStart].getStartTick() <= now) {
+			final Turbine t = starts[nextStart++];
+			context.add(t);
+			try {
+				t.initialize();
+				ends.add(t);
+			} catch (final SpatialException e) {
+				context.remove(t);
+				System.err.println("Did not add turbine " + t.getName() + " due to an error." + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Removes the turbines which have ended from the context.
+	 *
+	 * @param context The simulation context
+	 * @param now The current tick
+	 */
+	void deactivate(final Context<Agent> context, final double now) {
+		while (!ends.isEmpty() && ends.peek().getEndTick() < now) {
+			context.remove(ends.poll());
+		}
+	}
+
+	/**
+	 * @return The number of turbines which have not yet started
+	 */
+	int getPendingCount() {
+		return starts.length - nextStart;
+	}
+
+	/**
+	 * @return The number of turbines which have started and not yet ended
+	 */
+	int getActiveCount() {
+		return ends.size();
+	}
+
+}
@@ -27,11 +27,6 @@
 
 package dk.au.bios.porpoise.behavior;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
-
 import repast.simphony.space.continuous.NdPoint;
 import repast.simphony.space.grid.GridPoint;
 import dk.au.bios.porpoise.Agent;
@@ -39,7 +34,6 @@ import dk.au.bios.porpoise.Globals;
 import dk.au.bios.porpoise.Porpoise;
 import dk.au.bios.porpoise.SimulationConstants;
 import dk.au.bios.porpoise.SimulationParameters;
-import dk.au.bios.porpoise.behavior.PersistentSpatialMemory.MemCellData;
 import dk.au.bios.porpoise.util.DebugLog;
 import dk.au.bios.porpoise.util.PSMVerificationLog;
 import dk.au.bios.porpoise.util.ReplayHelper;
@@ -95,17 +89,15 @@ public abstract class AbstractPSMDispersal implements Dispersal {
 						- SimulationParameters.getPsmPreferredDistanceTolerance();
 				final double preferredDistance = getOwner().getPersistentSpatialMemory().getPreferredDistance();
 				final double distanceToTravel = (preferredDistance + randomToleranceAdjustment) / 0.4;
-				final NdPoint newTargetPos = new NdPoint(startPos.getX()
-						+ (distanceToTravel * Math.sin(targetHeadingRads)), startPos.getY()
-						+ (distanceToTravel * Math.cos(targetHeadingRads)));
-				final GridPoint targetGridPoint = Agent.ndPointToGridPoint(newTargetPos);
-
-				if (Globals.getCellData().getDepth(targetGridPoint) > 0) {
-					if (Globals.getCellData().getMaxEnt()[targetGridPoint.getX()][targetGridPoint.getY()] > 0.0f) {
-						this.targetHeading = newTargetHeading;
-						this.targetPos = newTargetPos;
-						break;
-					}
+				final double newTargetX = startPos.getX() + (distanceToTravel * Math.sin(targetHeadingRads));
+				final double newTargetY = startPos.getY() + (distanceToTravel * Math.cos(targetHeadingRads));
+
+				// Depth above 0 and maxent above 0, precomputed for the month
+				if (Globals.getCellData().isValidDispersalTarget(Agent.ndXToGridX(newTargetX),
+						Agent.ndYToGridY(newTargetY))) {
+					this.targetHeading = newTargetHeading;
+					this.targetPos = new NdPoint(newTargetX, newTargetY);
+					break;
 				}
 			}
 			if (maxAttempts < 1) {
@@ -294,40 +286,22 @@ public abstract class AbstractPSMDispersal implements Dispersal {
 	}
 
 	protected int findMostAttractiveMemCell() {
+		final PersistentSpatialMemory psm = getOwner().getPersistentSpatialMemory();
+		final MemCellStore cells = psm.getMemCells();
+
 		// Ensure we have a reasonable memory
-		if (getOwner().getPersistentSpatialMemory().getMemCellData().size() < 50) {
+		if (cells.size() < 50) {
 			return -1;
 		}
 
 		// Find candidate PSM cells considered preferred travel distance
-		final double preferredDistance = getOwner().getPersistentSpatialMemory().getPreferredDistance();
+		final double preferredDistance = psm.getPreferredDistance();
 		final double preferredMinDist = (preferredDistance - SimulationParameters.getPsmPreferredDistanceTolerance()) / 0.4;
 		final double preferredMaxDist = (preferredDistance + SimulationParameters.getPsmPreferredDistanceTolerance()) / 0.4;
-		final Map<Integer, MemCellData> candidates = new HashMap<>();
-		for (final Entry<Integer, MemCellData> entry : getOwner().getPersistentSpatialMemory().getMemCellData()
-				.entrySet()) {
-			final NdPoint center = getOwner().getPersistentSpatialMemory().calcMemCellCenterPoint(entry.getKey());
-
-			final double distanceToCell = this.owner.distanceXY(center);
-			if (distanceToCell >= preferredMinDist && distanceToCell <= preferredMaxDist) {
-				candidates.put(entry.getKey(), entry.getValue());
-			}
-		}
-
-		// Check the candidate cells for food over time
-		int mostAttractiveCellNumber = -1;
-		double mostAttractiveFitness = -1.0d;
-		final Set<Entry<Integer, MemCellData>> data = candidates.entrySet();
-		for (final Entry<Integer, MemCellData> entry : data) {
-			// Cells fitness is determined by food eaten divided by time spent in cell.
-			final double cellFitness = entry.getValue().getFoodObtained() / entry.getValue().getTicksSpent();
-			if (cellFitness > mostAttractiveFitness) {
-				mostAttractiveFitness = cellFitness;
-				mostAttractiveCellNumber = entry.getKey();
-			}
-		}
 
-		return mostAttractiveCellNumber;
+		// Check the candidate cells for food over time. Cells fitness is determined by food eaten divided by time spent
+		// in cell. Ties are resolved by the order the cells were first visited.
+		return psm.getTargetIndex().findBestInAnnulus(owner.getPosition(), preferredMinDist, preferredMaxDist);
 	}
 
 	@Override
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.behavior;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Ranking of the dispersal target blocks of the {@link InnerDanishWatersDispersal} by their value. The blocks are
+ * sorted once per set of block values (i.e. per quarter), so selecting the best blocks for a porpoise only requires
+ * skipping the blocks too close to it.
+ */
+public final class BlockRanking {
+
+	private final double[] source;
+	private final double[] values;
+	private final int[] centresX;
+	private final int[] centresY;
+
+	/** Block numbers by descending value, equal values by descending block number. */
+	private final int[] order;
+
+	/**
+	 * @param values The value of each block, all non-negative
+	 * @param centresX The x coordinate of the centre of each block
+	 * @param centresY The y coordinate of the centre of each block
+	 */
+	public BlockRanking(final double[] values, final int[] centresX, final int[] centresY) {
+		this.source = values;
+		this.values = values.clone();
+		this.centresX = centresX;
+		this.centresY = centresY;
+		this.order = IntStream.range(0, values.length).boxed()
+				.sorted(Comparator.comparingDouble((Integer i) -> this.values[i]).thenComparingInt(i -> i).reversed())
+				.mapToInt(i -> i).toArray();
+	}
+
+	/**
+	 * Whether this ranking was created for the given block values, and the values have not changed since.
+	 */
+	public boolean isFor(final double[] values) {
+		return source == values && Arrays.equals(this.values, values);
+	}
+
+	/**
+	 * The quality of a block seen from a position, which is the block value, or 0 if the block is too close.
+	 *
+	 * @param block The block number
+	 * @param x The x coordinate of the position
+	 * @param y The y coordinate of the position
+	 * @param minDist Blocks with a centre closer than this (in cells, after rounding) have quality 0
+	 * @return The block quality
+	 */
+	public double getQuality(final int block, final double x, final double y, final double minDist) {
+		return isTooClose(block, x, y, minDist) ? 0 : values[block];
+	}
+
+	/**
+	 * Finds the blocks of highest quality, best first. As in the original NetLogo selection, each rank gets the
+	 * highest numbered block with the quality at that rank, so blocks of equal quality give the same block several
+	 * times.
+	 *
+	 * @param x The x coordinate of the position
+	 * @param y The y coordinate of the position
+	 * @param minDist Blocks with a centre closer than this (in cells, after rounding) have quality 0
+	 * @param highQualityBlocks Receives the block numbers, its length is the number of blocks selected
+	 */
+	public void selectHighQualityBlocks(final double x, final double y, final double minDist,
+			final int[] highQualityBlocks) {
+		int n = 0;
+		int k = 0;
+		while (n < highQualityBlocks.length && k < order.length && values[order[k]] > 0) {
+			// The blocks with this value, which are not too close, share the rank of the highest numbered one
+			final double value = values[order[k]];
+			int block = -1;
+			int count = 0;
+			for (; k < order.length && values[order[k]] == value; k++) {
+				if (!isTooClose(order[k], x, y, minDist)) {
+					if (block < 0) {
+						block = order[k];
+					}
+					count++;
+				}
+			}
+			for (int c = 0; c < count && n < highQualityBlocks.length; c++) {
+				highQualityBlocks[n++] = block;
+			}
+		}
+
+		if (n < highQualityBlocks.length) {
+			// The remaining ranks have quality 0, from blocks valued 0 or too close
+			int block = 0;
+			for (int j = 0; j < values.length; j++) {
+				if (values[j] == 0 || isTooClose(j, x, y, minDist)) {
+					block = j;
+				}
+			}
+			Arrays.fill(highQualityBlocks, n, highQualityBlocks.length, block);
+		}
+	}
+
+	private boolean isTooClose(final int block, final double x, final double y, final double minDist) {
+		final double oneDX = Math.abs(x - centresX[block]);
+		final double oneDY = Math.abs(y - centresY[block]);
+		final double blockDist = Math.round(Math.sqrt(oneDX * oneDX + oneDY * oneDY));
+		return blockDist < minDist;
+	}
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.behavior;
+
+import java.util.Arrays;
+
+import dk.au.bios.porpoise.Globals;
+
+/**
+ * The persistent spatial memory of a calf while it is nursing.
+ *
+ * A nursing calf visits exactly the same positions as its mother, so its memory holds the same cells as the part of the
+ * mother's memory built since the birth. Instead of updating a separate memory every tick, the calf memory is a view of
+ * the mother's memory: cells first visited by the mother after the birth are shared, and only cells the mother already
+ * knew at the birth are tracked separately in an overlay. The calf's own memory is created by {@link #materialize()} when
+ * the calf leaves its mother.
+ */
+public final class CalfSpatialMemory {
+
+	private final PersistentSpatialMemory mother;
+	private final double preferredDistance;
+
+	/** Number of cells in the mother's memory at the birth. */
+	private final int baseSize;
+
+	/** Calf visits to the cells the mother already knew at the birth. */
+	private final MemCellStore overlay = new MemCellStore();
+
+	/** Number of cells in the mother's memory when each overlay entry was added. */
+	private int[] motherSizeAt = new int[16];
+
+	/**
+	 * @param mother The memory of the mother
+	 * @param preferredDistance The preferred distance of the calf memory
+	 */
+	public CalfSpatialMemory(final PersistentSpatialMemory mother, final double preferredDistance) {
+		this.mother = mother;
+		this.preferredDistance = preferredDistance;
+		this.baseSize = mother.getMemCells().size();
+	}
+
+	/**
+	 * Records a calf visit, which must be the same as the latest update of the mother's memory.
+	 *
+	 * @param motherIndex The index of the cell in the mother's memory, as returned by
+	 *        {@link PersistentSpatialMemory#updateMemory(repast.simphony.space.continuous.NdPoint, double)}
+	 * @param foodEaten The amount of food eaten
+	 */
+	public void record(final int motherIndex, final double foodEaten) {
+		if (motherIndex < baseSize) {
+			final int sizeBefore = overlay.size();
+			final int index = overlay.add(mother.getMemCells().getCell(motherIndex), foodEaten);
+			if (index == sizeBefore) {
+				if (index == motherSizeAt.length) {
+					motherSizeAt = Arrays.copyOf(motherSizeAt, index * 2);
+				}
+				motherSizeAt[index] = mother.getMemCells().size();
+			}
+		}
+	}
+
+	public double getPreferredDistance() {
+		return preferredDistance;
+	}
+
+	/**
+	 * Creates the calf's own memory, with the cells in the order the calf first visited them.
+	 *
+	 * @return The calf memory
+	 */
+	public PersistentSpatialMemory materialize() {
+		final PersistentSpatialMemory calf = new PersistentSpatialMemory(Globals.getWorldWidth(),
+				Globals.getWorldHeight(), preferredDistance);
+		final MemCellStore shared = mother.getMemCells();
+		int next = 0;
+		for (int i = baseSize; i < shared.size(); i++) {
+			// Overlay entries added before the mother found cell i were visited first
+			while (next < overlay.size() && motherSizeAt[next] <= i) {
+				calf.restoreMemory(overlay.getCell(next), overlay.getTicksSpent(next), overlay.getFoodObtained(next));
+				next++;
+			}
+			calf.restoreMemory(shared.getCell(i), shared.getTicksSpent(i), shared.getFoodObtained(i));
+		}
+		for (; next < overlay.size(); next++) {
+			calf.restoreMemory(overlay.getCell(next), overlay.getTicksSpent(next), overlay.getFoodObtained(next));
+		}
+		return calf;
+	}
+
+}
@@ -27,13 +27,9 @@
 
 package dk.au.bios.porpoise.behavior;
 
-import java.util.Map.Entry;
-
-import repast.simphony.space.continuous.NdPoint;
 import dk.au.bios.porpoise.Globals;
 import dk.au.bios.porpoise.Porpoise;
 import dk.au.bios.porpoise.SimulationParameters;
-import dk.au.bios.porpoise.behavior.PersistentSpatialMemory.MemCellData;
 
 /**
  * Implementation of the PSM-Type3 dispersal.
@@ -85,32 +81,16 @@ public class DispersalPSMType3 extends AbstractPSMDispersal implements Dispersal
 
 	@Override
 	protected int findMostAttractiveMemCell() {
+		final PersistentSpatialMemory psm = getOwner().getPersistentSpatialMemory();
+		final MemCellStore cells = psm.getMemCells();
+
 		// Ensure we have a reasonable memory
-		if (getOwner().getPersistentSpatialMemory().getMemCellData().size() < 50) {
+		if (cells.size() < 50) {
 			return -1;
 		}
 
-		double targetCellFitness = -1;
-		int targetCell = -1;
-
-		for (final Entry<Integer, MemCellData> entry : getOwner().getPersistentSpatialMemory().getMemCellData()
-				.entrySet()) {
-			final NdPoint center = getOwner().getPersistentSpatialMemory().calcMemCellCenterPoint(entry.getKey());
-
-			// Expected energy in cell - U[c]
-			final double energyExpectation = entry.getValue().getEnergyExpectation();
-
-			final double distanceToCellNeg = 0 - this.getOwner().distanceXY(center);
-			final double cost = energyExpectation * (1 - Math.exp(distanceToCellNeg * SimulationParameters.getQ1()));
-			final double cellFitness = energyExpectation - cost;
-
-			if (cellFitness > targetCellFitness) {
-				targetCell = entry.getKey();
-				targetCellFitness = cellFitness;
-			}
-		}
-
-		return targetCell;
+		// Cell fitness is the expected energy in the cell, U[c], minus the travel cost
+		return psm.getTargetIndex().findBestWithTravelCost(getOwner().getPosition(), SimulationParameters.getQ1());
 	}
 
 	@Override
@@ -36,6 +36,7 @@ import dk.au.bios.porpoise.Globals;
 import dk.au.bios.porpoise.Porpoise;
 import dk.au.bios.porpoise.SimulationConstants;
 import dk.au.bios.porpoise.SimulationParameters;
+import dk.au.bios.porpoise.landscape.CellData;
 import dk.au.bios.porpoise.util.ASCUtil;
 import dk.au.bios.porpoise.util.DebugLog;
 import dk.au.bios.porpoise.util.ReplayHelper;
@@ -104,10 +105,32 @@ public class InnerDanishWatersDispersal implements Dispersal {
 	 */
 	private static int N_DISP_TARGET = 12; // This used to be parameter q but this has been removed!
 
+	/** Angle offsets (degrees) of the probes made by disp1, index 0 and 8 are never probed. */
+	private static final int[] DISP1_ANGLES = new int[] { -40, -30, -20, -10, 0, 10, 20, 30, 40 };
+
+	/** Angle offsets (degrees) of the probes made by disp2. */
+	private static final int[] DISP2_ANGLES = new int[] { -80, -70, -60, -50, -40, -30, -20, -10, 0, 10, 20, 30, 40,
+			50, 60, 70, 80 };
+
+	/** The ranking of the blocks for the current block values. */
+	private static volatile BlockRanking blockRanking;
+
 	private final Porpoise owner;
 	private byte dispType; // Disperse away from low-energy area. 0 if not dispersing, 1 if dispersing far, 2 if...
 	private NdPoint dispTarget; // List with x and y coord of the patch that the porp attempts to disperse to (not UTM)
 
+	// Scratch buffers, reused between ticks
+	private final double[] bathymetryAhead = new double[9];
+	private final double[] bathymetryFarAhead = new double[9];
+	private final double[] distToCoastAhead = new double[9];
+	private final boolean[] goodHeading = new boolean[9];
+	private final double[] disttocoastAhead = new double[17];
+	private final int[] highQualityBlocks = new int[N_DISP_TARGET];
+	private final double[] probeCoords = new double[2];
+	private final double[] probeAngles = new double[2];
+	private int probeX;
+	private int probeY;
+
 	public InnerDanishWatersDispersal(final Porpoise owner) {
 		this.owner = owner;
 
@@ -224,35 +247,31 @@ public class InnerDanishWatersDispersal implements Dispersal {
 
 		owner.facePoint(new NdPoint(pos.getX() + theDx / 2, pos.getY() + theDy / 2));
 
-		// @formatter:off
 		// adjust angle to swim towards deep areas
-		double[] bathymetryAhead = new double[] { -999, -999,
-				Globals.getCellData().getDepth(owner.getPointAtHeadingAndDist(owner.getHeading() - 20, SimulationParameters.getMeanDispDist())),
-				Globals.getCellData().getDepth(owner.getPointAtHeadingAndDist(owner.getHeading() - 10, SimulationParameters.getMeanDispDist())),
-				Globals.getCellData().getDepth(owner.getPointAtHeadingAndDist(owner.getHeading(), SimulationParameters.getMeanDispDist())),
-				Globals.getCellData().getDepth(owner.getPointAtHeadingAndDist(owner.getHeading() + 10, SimulationParameters.getMeanDispDist())),
-				Globals.getCellData().getDepth(owner.getPointAtHeadingAndDist(owner.getHeading() + 20, SimulationParameters.getMeanDispDist())),
-				-999, -999 };
-
-		double[] bathymetryFarAhead = new double[] { -999,
-				Globals.getCellData().getDepth(owner.getPointAtHeadingAndDist(owner.getHeading() - 30, SimulationParameters.getMeanDispDist() * 8)),
-				Globals.getCellData().getDepth(owner.getPointAtHeadingAndDist(owner.getHeading() - 20, SimulationParameters.getMeanDispDist() * 8)),
-				Globals.getCellData().getDepth(owner.getPointAtHeadingAndDist(owner.getHeading() - 10, SimulationParameters.getMeanDispDist() * 8)),
-				Globals.getCellData().getDepth(owner.getPointAtHeadingAndDist(owner.getHeading(), SimulationParameters.getMeanDispDist() * 8)),
-				Globals.getCellData().getDepth(owner.getPointAtHeadingAndDist(owner.getHeading() + 10, SimulationParameters.getMeanDispDist() * 8)),
-				Globals.getCellData().getDepth(owner.getPointAtHeadingAndDist(owner.getHeading() + 20, SimulationParameters.getMeanDispDist() * 8)),
-				Globals.getCellData().getDepth(owner.getPointAtHeadingAndDist(owner.getHeading() + 30, SimulationParameters.getMeanDispDist() * 8)),
-				-999 };
-		// @formatter:on
+		final CellData cellData = Globals.getCellData();
+		final double meanDispDist = SimulationParameters.getMeanDispDist();
+		for (int i = 0; i < bathymetryAhead.length; i++) {
+			if (i >= 2 && i <= 6) {
+				probe(DISP1_ANGLES[i], meanDispDist);
+				bathymetryAhead[i] = cellData.getDepth(probeX, probeY);
+			} else {
+				bathymetryAhead[i] = -999;
+			}
+			if (i >= 1 && i <= 7) {
+				probe(DISP1_ANGLES[i], meanDispDist * 8);
+				bathymetryFarAhead[i] = cellData.getDepth(probeX, probeY);
+			} else {
+				bathymetryFarAhead[i] = -999;
+			}
+		}
 
 		// Turn up to 20 degr towards deepest water, provided that there is no land
 		// further away in that direction
-		boolean[] goodHeading = new boolean[] { false, false, false, false, false, false, false, false, false };
 		for (int i = 0; i < goodHeading.length; i++) {
 			goodHeading[i] = (bathymetryFarAhead[i] > 0);
 		}
 
-		int[] angles = new int[] { -40, -30, -20, -10, 0, 10, 20, 30, 40 };
+		final int[] angles = DISP1_ANGLES;
 
 		double bathymetryChoice = -999;
 		double selAngle = 0;
@@ -269,18 +288,15 @@ public class InnerDanishWatersDispersal implements Dispersal {
 
 		owner.incHeading(selAngle);
 
-		// @formatter:off
 		// Turn to areas far from land if there is land ahead
-		double[] distToCoastAhead = new double[] { -999,
-				Globals.getCellData().getDistanceToCoast(owner.getPointAtHeadingAndDist(owner.getHeading() - 30, SimulationParameters.getMeanDispDist() * 2)),
-				Globals.getCellData().getDistanceToCoast(owner.getPointAtHeadingAndDist(owner.getHeading() - 20, SimulationParameters.getMeanDispDist() * 2)),
-				Globals.getCellData().getDistanceToCoast(owner.getPointAtHeadingAndDist(owner.getHeading() - 10, SimulationParameters.getMeanDispDist() * 2)),
-				Globals.getCellData().getDistanceToCoast(owner.getPointAtHeadingAndDist(owner.getHeading(), SimulationParameters.getMeanDispDist() * 2)),
-				Globals.getCellData().getDistanceToCoast(owner.getPointAtHeadingAndDist(owner.getHeading() + 10, SimulationParameters.getMeanDispDist() * 2)),
-				Globals.getCellData().getDistanceToCoast(owner.getPointAtHeadingAndDist(owner.getHeading() + 20, SimulationParameters.getMeanDispDist() * 2)),
-				Globals.getCellData().getDistanceToCoast(owner.getPointAtHeadingAndDist(owner.getHeading() + 30, SimulationParameters.getMeanDispDist() * 2)),
-				-999 };
-		// @formatter:on
+		for (int i = 0; i < distToCoastAhead.length; i++) {
+			if (i >= 1 && i <= 7) {
+				probe(DISP1_ANGLES[i], meanDispDist * 2);
+				distToCoastAhead[i] = cellData.getDistanceToCoast(probeX, probeY);
+			} else {
+				distToCoastAhead[i] = -999;
+			}
+		}
 
 		// make sure that there is also water far away
 		for (int i = 0; i < distToCoastAhead.length; i++) {
@@ -392,27 +408,12 @@ public class InnerDanishWatersDispersal implements Dispersal {
 		ReplayHelper.print(
 				"disp2-heading-before after rot 180: " + owner.getHeading() + " mean-disp-dist " + "?mean-disp-dist?");
 
-		// @formatter:off
 		// adjust angle to swim at const dist from land
-		double[] disttocoastAhead = new double[] {
-				Globals.getCellData().getDistanceToCoast(owner.getPointAtHeadingAndDist(owner.getHeading() - 80, SimulationParameters.getMeanDispDist())),
-				Globals.getCellData().getDistanceToCoast(owner.getPointAtHeadingAndDist(owner.getHeading() - 70, SimulationParameters.getMeanDispDist())),
-				Globals.getCellData().getDistanceToCoast(owner.getPointAtHeadingAndDist(owner.getHeading() - 60, SimulationParameters.getMeanDispDist())),
-				Globals.getCellData().getDistanceToCoast(owner.getPointAtHeadingAndDist(owner.getHeading() - 50, SimulationParameters.getMeanDispDist())),
-				Globals.getCellData().getDistanceToCoast(owner.getPointAtHeadingAndDist(owner.getHeading() - 40, SimulationParameters.getMeanDispDist())),
-				Globals.getCellData().getDistanceToCoast(owner.getPointAtHeadingAndDist(owner.getHeading() - 30, SimulationParameters.getMeanDispDist())),
-				Globals.getCellData().getDistanceToCoast(owner.getPointAtHeadingAndDist(owner.getHeading() - 20, SimulationParameters.getMeanDispDist())),
-				Globals.getCellData().getDistanceToCoast(owner.getPointAtHeadingAndDist(owner.getHeading() - 10, SimulationParameters.getMeanDispDist())),
-				Globals.getCellData().getDistanceToCoast(owner.getPointAtHeadingAndDist(owner.getHeading(), SimulationParameters.getMeanDispDist())),
-				Globals.getCellData().getDistanceToCoast(owner.getPointAtHeadingAndDist(owner.getHeading() + 10, SimulationParameters.getMeanDispDist())),
-				Globals.getCellData().getDistanceToCoast(owner.getPointAtHeadingAndDist(owner.getHeading() + 20, SimulationParameters.getMeanDispDist())),
-				Globals.getCellData().getDistanceToCoast(owner.getPointAtHeadingAndDist(owner.getHeading() + 30, SimulationParameters.getMeanDispDist())),
-				Globals.getCellData().getDistanceToCoast(owner.getPointAtHeadingAndDist(owner.getHeading() + 40, SimulationParameters.getMeanDispDist())),
-				Globals.getCellData().getDistanceToCoast(owner.getPointAtHeadingAndDist(owner.getHeading() + 50, SimulationParameters.getMeanDispDist())),
-				Globals.getCellData().getDistanceToCoast(owner.getPointAtHeadingAndDist(owner.getHeading() + 60, SimulationParameters.getMeanDispDist())),
-				Globals.getCellData().getDistanceToCoast(owner.getPointAtHeadingAndDist(owner.getHeading() + 70, SimulationParameters.getMeanDispDist())),
-				Globals.getCellData().getDistanceToCoast(owner.getPointAtHeadingAndDist(owner.getHeading() + 80, SimulationParameters.getMeanDispDist())) };
-		// @formatter:on
+		final CellData cellData = Globals.getCellData();
+		for (int i = 0; i < disttocoastAhead.length; i++) {
+			probe(DISP2_ANGLES[i], SimulationParameters.getMeanDispDist());
+			disttocoastAhead[i] = cellData.getDistanceToCoast(probeX, probeY);
+		}
 		ReplayHelper.print("disp2-heading-before disttocoast-ahead:" + java.util.Arrays.toString(disttocoastAhead));
 
 		// Stay on current dist from land if 1-4 km from land, or try to get there
@@ -444,7 +445,7 @@ public class InnerDanishWatersDispersal implements Dispersal {
 			}
 		}
 
-		int[] angles = new int[] { -80, -70, -60, -50, -40, -30, -20, -10, 0, 10, 20, 30, 40, 50, 60, 70, 80 };
+		final int[] angles = DISP2_ANGLES;
 		int selAngle = -9999;
 
 		if (Globals.getCellData().getDistanceToCoast(owner.getPosition()) > 4000) {
@@ -495,50 +496,27 @@ public class InnerDanishWatersDispersal implements Dispersal {
 	private void dispTargetSelect() {
 		// deciding where to disperse to based on knowledge of other blocks (each block
 		// is 100 x 100 cells = 40 000 x 40 000 m)
-		int nbr = 0;
-		double[] blockQuality = new double[] { 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
-				0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
-				0 };
-
-		double[] blockValues = getBlockValues();
-
-		while (nbr < blockQuality.length) {
-			NdPoint pos = owner.getPosition();
-			double oneDX = Math.abs(pos.getX() - BLOCK_CENTRES_X[nbr]);
-			double oneDY = Math.abs(pos.getY() - BLOCK_CENTRES_Y[nbr]);
-
-			double blockDist = Math.round(Math.sqrt(oneDX * oneDX + oneDY * oneDY));
-
-			blockQuality[nbr] = blockValues[nbr];
-
-			// set quality to 0 for blocks that are too close or too far (divide by 0.4 to
-			// convert from km to cells)
-			if (blockDist < MIN_DIST_TO_TARGET / 0.4) {
-				blockQuality[nbr] = 0;
-			}
-			nbr++;
+		final double[] blockValues = getBlockValues();
+		BlockRanking ranking = blockRanking;
+		if (ranking == null || !ranking.isFor(blockValues)) {
+			ranking = new BlockRanking(blockValues, BLOCK_CENTRES_X, BLOCK_CENTRES_Y);
+			blockRanking = ranking;
 		}
 
+		// quality is set to 0 for blocks that are too close or too far (divide by 0.4 to
+		// convert from km to cells)
+		final NdPoint pos = owner.getPosition();
 		if (DebugLog.isEnabledFor(7) && (owner.getId() == 0 || owner.getId() == 1)) {
+			final double[] blockQuality = new double[blockValues.length];
+			for (int nbr = 0; nbr < blockQuality.length; nbr++) {
+				blockQuality[nbr] = ranking.getQuality(nbr, pos.getX(), pos.getY(), MIN_DIST_TO_TARGET / 0.4);
+			}
 			DebugLog.print(Arrays.toString(blockQuality));
 		}
 
 		// numbers of the blocks with highest quality (blocks numbered 0-59, best block
 		// first)
-		int[] highQualityBlocks = new int[N_DISP_TARGET];
-
-		double[] blockQualitySorted = java.util.Arrays.copyOf(blockQuality, blockQuality.length);
-		java.util.Arrays.sort(blockQualitySorted);
-
-		for (int i = 0; i < highQualityBlocks.length; i++) {
-			double hiQualI = blockQualitySorted[blockQualitySorted.length - i - 1];
-
-			for (int j = 0; j < blockValues.length; j++) {
-				if (blockQuality[j] == hiQualI) {
-					highQualityBlocks[i] = j;
-				}
-			}
-		}
+		ranking.selectHighQualityBlocks(pos.getX(), pos.getY(), MIN_DIST_TO_TARGET / 0.4, highQualityBlocks);
 
 		// select block at random from the twelve blocks with highest quality (where
 		// qual = mean.food / dist)
@@ -563,6 +541,20 @@ public class InnerDanishWatersDispersal implements Dispersal {
 		}
 	}
 
+	/**
+	 * Finds the grid cell at a distance from the porpoise, in the direction of its heading plus an angle offset. The
+	 * point is calculated as by {@link Porpoise#getPointAtHeadingAndDist(double, double)}, and the cell is stored in
+	 * probeX and probeY.
+	 *
+	 * @param angleOffset Offset from the heading in degrees
+	 * @param distance The distance to probe at
+	 */
+	private void probe(final int angleOffset, final double distance) {
+		owner.getPointAtHeadingAndDist(owner.getHeading() + angleOffset, distance, probeCoords, probeAngles);
+		probeX = Agent.ndXToGridX(probeCoords[0]);
+		probeY = Agent.ndYToGridY(probeCoords[1]);
+	}
+
 	private double[] getBlockValues() {
 		if (isLandscapeHomogenous()) {
 			return BLOCK_VAL_HOMO;
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.behavior;
+
+import java.util.Arrays;
+
+/**
+ * The memory cells visited by a porpoise, holding the ticks spent and the food obtained per cell.
+ *
+ * The entries are kept in parallel primitive arrays in the order the cells were first visited, and looked up through an
+ * open-addressing hash table of entry indexes. Compared to a map of boxed cell numbers to cell objects this needs no
+ * allocation when a cell is revisited and only a fraction of the memory, which matters as each porpoise remembers
+ * thousands of cells.
+ */
+public final class MemCellStore {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** Marks an empty slot in the hash table. */
+	private static final int EMPTY = -1;
+
+	private int[] cells;
+	private long[] ticksSpent;
+	private double[] foodObtained;
+	private int size = 0;
+
+	/** Entry index per slot, the number of slots is a power of two and at least twice the number of entries. */
+	private int[] slots;
+	private int mask;
+
+	public MemCellStore() {
+		cells = new int[INITIAL_CAPACITY];
+		ticksSpent = new long[INITIAL_CAPACITY];
+		foodObtained = new double[INITIAL_CAPACITY];
+		slots = new int[INITIAL_CAPACITY * 2];
+		Arrays.fill(slots, EMPTY);
+		mask = slots.length - 1;
+	}
+
+	/**
+	 * Creates a copy of another store.
+	 *
+	 * @param other The store to copy
+	 */
+	public MemCellStore(final MemCellStore other) {
+		cells = other.cells.clone();
+		ticksSpent = other.ticksSpent.clone();
+		foodObtained = other.foodObtained.clone();
+		size = other.size;
+		slots = other.slots.clone();
+		mask = other.mask;
+	}
+
+	/**
+	 * Records a tick spent in a cell and the food obtained there.
+	 *
+	 * @param cell The memory cell number
+	 * @param food The food eaten in the tick
+	 * @return The index of the entry for the cell
+	 */
+	public int add(final int cell, final double food) {
+		final int idx = entryFor(cell);
+		foodObtained[idx] += food;
+		ticksSpent[idx]++;
+		return idx;
+	}
+
+	/**
+	 * Sets the ticks spent in a cell and the food obtained there.
+	 *
+	 * @param cell The memory cell number
+	 * @param ticks The ticks spent in the cell
+	 * @param food The food obtained in the cell
+	 * @return The index of the entry for the cell
+	 */
+	public int put(final int cell, final long ticks, final double food) {
+		final int idx = entryFor(cell);
+		foodObtained[idx] = food;
+		ticksSpent[idx] = ticks;
+		return idx;
+	}
+
+	/**
+	 * @param cell The memory cell number
+	 * @return The index of the entry for the cell, or -1 if the cell has not been visited
+	 */
+	public int indexOf(final int cell) {
+		return slots[slotOf(cell)];
+	}
+
+	/**
+	 * @return The number of cells visited
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param index Entry index, between 0 (inclusive) and {@link #size()} (exclusive)
+	 * @return The memory cell number of the entry
+	 */
+	public int getCell(final int index) {
+		return cells[index];
+	}
+
+	public long getTicksSpent(final int index) {
+		return ticksSpent[index];
+	}
+
+	public double getFoodObtained(final int index) {
+		return foodObtained[index];
+	}
+
+	public double getEnergyExpectation(final int index) {
+		return foodObtained[index] / ticksSpent[index];
+	}
+
+	/**
+	 * Returns the index of the entry for the cell, adding an empty entry if the cell has not been visited.
+	 */
+	private int entryFor(final int cell) {
+		int slot = slotOf(cell);
+		int idx = slots[slot];
+		if (idx == EMPTY) {
+			if (size == cells.length) {
+				grow();
+				slot = slotOf(cell);
+			}
+			idx = size++;
+			cells[idx] = cell;
+			slots[slot] = idx;
+		}
+		return idx;
+	}
+
+	/**
+	 * Finds the slot holding the cell, or the empty slot where it belongs.
+	 */
+	private int slotOf(final int cell) {
+		int slot = mix(cell) & mask;
+		while (slots[slot] != EMPTY && cells[slots[slot]] != cell) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void grow() {
+		final int capacity = cells.length * 2;
+		cells = Arrays.copyOf(cells, capacity);
+		ticksSpent = Arrays.copyOf(ticksSpent, capacity);
+		foodObtained = Arrays.copyOf(foodObtained, capacity);
+
+		slots = new int[capacity * 2];
+		Arrays.fill(slots, EMPTY);
+		mask = slots.length - 1;
+		for (int i = 0; i < size; i++) {
+			slots[slotOf(cells[i])] = i;
+		}
+	}
+
+	private static int mix(final int key) {
+		final int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+}
@@ -27,10 +27,8 @@
 
 package dk.au.bios.porpoise.behavior;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
 
 import repast.simphony.space.continuous.NdPoint;
 import repast.simphony.space.grid.GridPoint;
@@ -49,6 +47,14 @@ public class PersistentSpatialMemory {
 		private long ticksSpent = 0;
 		private double foodObtained = 0.0d;
 
+		public MemCellData() {
+		}
+
+		public MemCellData(final long ticksSpent, final double foodObtained) {
+			this.ticksSpent = ticksSpent;
+			this.foodObtained = foodObtained;
+		}
+
 		public void updateFoodEaten(final double foodEaten) {
 			this.foodObtained += foodEaten;
 			this.ticksSpent++;
@@ -73,8 +79,9 @@ public class PersistentSpatialMemory {
 
 	}
 
-	// Map of cell data keyed by cellNumber (id). Only holds data for actually visited cells.
-	private final Map<Integer, MemCellData> memCellData = new HashMap<>();
+	// Cell data keyed by cellNumber (id). Only holds data for actually visited cells.
+	private final MemCellStore memCellData = new MemCellStore();
+	private final PsmTargetIndex targetIndex = new PsmTargetIndex();
 	private final int cellsPerRow;
 	private final double preferredDistance;
 
@@ -114,18 +121,33 @@ public class PersistentSpatialMemory {
 	 *
 	 * @param position The current position.
 	 * @param foodEaten The amount of food eaten at this position.
+	 * @return The index of the updated cell in {@link #getMemCells()}, or -1 if no food was eaten.
 	 */
-	public void updateMemory(final NdPoint position, final double foodEaten) {
+	public int updateMemory(final NdPoint position, final double foodEaten) {
 		if (foodEaten > 0.0f) {
 			final int cellNumber = calculateMemCellNumber(position);
-			MemCellData cell = memCellData.get(cellNumber);
-			if (cell == null) {
-				cell = new MemCellData();
-				memCellData.put(cellNumber, cell);
-			}
-
-			cell.updateFoodEaten(foodEaten);
+			final int index = memCellData.add(cellNumber, foodEaten);
+			updateTargetIndex(index, cellNumber);
+			return index;
 		}
+		return -1;
+	}
+
+	/**
+	 * Sets the data of a cell, used when creating a memory from the data collected elsewhere.
+	 */
+	void restoreMemory(final int cellNumber, final long ticksSpent, final double foodObtained) {
+		final int index = memCellData.put(cellNumber, ticksSpent, foodObtained);
+		updateTargetIndex(index, cellNumber);
+	}
+
+	private void updateTargetIndex(final int index, final int cellNumber) {
+		// Same center as calcMemCellCenterPoint
+		final int cellsPerRow = Globals.getWorldWidth() / MEM_CELL_SIZE;
+		final int cellX = (cellNumber % cellsPerRow) * MEM_CELL_SIZE;
+		final int cellY = (cellNumber / cellsPerRow) * MEM_CELL_SIZE;
+		targetIndex.update(index, cellNumber, cellX + (MEM_CELL_SIZE / 2), cellY + (MEM_CELL_SIZE / 2),
+				memCellData.getEnergyExpectation(index));
 	}
 
 	public NdPoint calcMemCellCenterPoint(final int cellNumber) {
@@ -157,26 +179,48 @@ public class PersistentSpatialMemory {
 		return preferredDistance;
 	}
 
-	public Map<Integer, MemCellData> getMemCellData() {
+	/**
+	 * @return The visited cells, in the order they were first visited.
+	 */
+	public MemCellStore getMemCells() {
 		return memCellData;
 	}
 
+	/**
+	 * @return The index used to select the dispersal target among the visited cells.
+	 */
+	public PsmTargetIndex getTargetIndex() {
+		return targetIndex;
+	}
+
+	/**
+	 * Returns a copy of the cell data keyed by cell number, in the order the cells were first visited. Intended for
+	 * inspection, the dispersal uses {@link #getMemCells()}.
+	 *
+	 * @return Map of cell data keyed by cell number.
+	 */
+	public Map<Integer, MemCellData> getMemCellData() {
+		final Map<Integer, MemCellData> data = new LinkedHashMap<>();
+		for (int i = 0; i < memCellData.size(); i++) {
+			data.put(memCellData.getCell(i),
+					new MemCellData(memCellData.getTicksSpent(i), memCellData.getFoodObtained(i)));
+		}
+		return data;
+	}
+
 	@Override
 	public String toString() {
 		final StringBuilder sb = new StringBuilder("PersistentSpatialMemory: ");
 
-		boolean first = true;
-		final Set<Entry<Integer, MemCellData>> data = memCellData.entrySet();
-		for (final Entry<Integer, MemCellData> entry : data) {
-			if (!first) {
+		for (int i = 0; i < memCellData.size(); i++) {
+			if (i > 0) {
 				sb.append(", ");
 			}
 			sb.append("{");
-			sb.append(entry.getKey()).append(": ");
-			sb.append(entry.getValue().getTicksSpent());
-			sb.append(", ").append(entry.getValue().getFoodObtained());
+			sb.append(memCellData.getCell(i)).append(": ");
+			sb.append(memCellData.getTicksSpent(i));
+			sb.append(", ").append(memCellData.getFoodObtained(i));
 			sb.append("}");
-			first = false;
 		}
 		return sb.toString();
 	}
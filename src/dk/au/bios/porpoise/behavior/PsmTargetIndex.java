@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.behavior;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import dk.au.bios.porpoise.Globals;
+import repast.simphony.space.continuous.ContinuousSpace;
+import repast.simphony.space.continuous.NdPoint;
+
+/**
+ * Spatial index over the cells of a {@link PersistentSpatialMemory}, used to select the target of a PSM dispersal.
+ *
+ * The cells are kept in square buckets of the landscape together with their energy expectation, which is updated
+ * whenever the memory is. A search only visits the buckets which can hold a better cell than the best found so far,
+ * judged from the distance between the porpoise and the bucket and the highest energy expectation in the bucket.
+ *
+ * The result is the same as scanning all cells in the order they were first visited: a cell replaces the best cell if
+ * its fitness is higher, or equal and it was visited first.
+ */
+public final class PsmTargetIndex {
+
+	/** Width and height of a bucket, in grid cells (40 grid cells, 16 km). */
+	private static final int BUCKET_SIZE = 40;
+
+	private static final double EPSILON = 1e-9;
+
+	private int[] cells = new int[16];
+	private double[] centerX = new double[16];
+	private double[] centerY = new double[16];
+	private double[] expectation = new double[16];
+	private int size = 0;
+
+	private int bucketsPerRow = 0;
+	private int bucketRows = 0;
+	private int[][] bucketEntries = new int[0][];
+	private int[] bucketCount = new int[0];
+	/** Upper bound of the energy expectation of the cells in each bucket. */
+	private double[] bucketMaxExpectation = new double[0];
+
+	/**
+	 * Updates the index after the memory was updated.
+	 *
+	 * @param index The entry index of the cell in the {@link MemCellStore}
+	 * @param cell The memory cell number
+	 * @param cellCenterX The x coordinate of the center of the memory cell
+	 * @param cellCenterY The y coordinate of the center of the memory cell
+	 * @param energyExpectation The new energy expectation of the cell
+	 */
+	void update(final int index, final int cell, final double cellCenterX, final double cellCenterY,
+			final double energyExpectation) {
+		if (index == size) {
+			add(cell, cellCenterX, cellCenterY);
+		}
+		expectation[index] = energyExpectation;
+		final int bucket = bucketOf(index);
+		bucketMaxExpectation[bucket] = Math.max(bucketMaxExpectation[bucket], energyExpectation);
+	}
+
+	/**
+	 * Finds the cell with the highest energy expectation among the cells at a distance within the given range. This is
+	 * the selection of PSM-Type1 and PSM-Type2.
+	 *
+	 * @param position The position of the porpoise
+	 * @param minDistance Minimum distance to the center of the cell (grid units, inclusive)
+	 * @param maxDistance Maximum distance to the center of the cell (grid units, inclusive)
+	 * @return The memory cell number, or -1 if no cell is within the range
+	 */
+	public int findBestInAnnulus(final NdPoint position, final double minDistance, final double maxDistance) {
+		final boolean periodic = isPeriodic();
+		int best = -1;
+		double bestFitness = -1.0d;
+		for (int b = 0; b < bucketCount.length; b++) {
+			if (bucketCount[b] == 0 || bucketMaxExpectation[b] < bestFitness) {
+				continue;
+			}
+			if (!periodic && (maxBucketDistance(b, position) < minDistance - EPSILON
+					|| minBucketDistance(b, position) > maxDistance + EPSILON)) {
+				continue;
+			}
+			final int[] entries = bucketEntries[b];
+			for (int k = 0; k < bucketCount[b]; k++) {
+				final int i = entries[k];
+				final double fitness = expectation[i];
+				if (fitness < bestFitness || (fitness == bestFitness && i > best)) {
+					continue;
+				}
+				final double distanceToCell = distance(position, i, periodic);
+				if (distanceToCell >= minDistance && distanceToCell <= maxDistance) {
+					best = i;
+					bestFitness = fitness;
+				}
+			}
+		}
+
+		return best >= 0 ? cells[best] : -1;
+	}
+
+	/**
+	 * Finds the cell with the highest energy expectation after subtracting the travel cost, where the cost is the
+	 * fraction <code>1 - exp(-distance * q1)</code> of the expectation. This is the selection of PSM-Type3.
+	 *
+	 * @param position The position of the porpoise
+	 * @param q1 The travel cost coefficient
+	 * @return The memory cell number, or -1 if no cell has a fitness above -1
+	 */
+	public int findBestWithTravelCost(final NdPoint position, final double q1) {
+		final boolean periodic = isPeriodic();
+
+		// Visit the buckets by descending bound on the fitness, stop once no bucket can beat the best cell
+		final double[] bound = new double[bucketCount.length];
+		for (int b = 0; b < bucketCount.length; b++) {
+			if (bucketCount[b] > 0) {
+				final double distance;
+				if (periodic) {
+					distance = q1 >= 0.0d ? 0.0d : Double.POSITIVE_INFINITY;
+				} else {
+					distance = q1 >= 0.0d ? minBucketDistance(b, position) : maxBucketDistance(b, position);
+				}
+				final double factor = q1 == 0.0d ? 1.0d : Math.exp(-distance * q1);
+				if (bucketMaxExpectation[b] > 0.0d) {
+					bound[b] = bucketMaxExpectation[b] * factor * (1 + EPSILON) + EPSILON;
+				} else {
+					bound[b] = EPSILON;
+				}
+			}
+		}
+		final int[] order = bucketsByBound(bound);
+
+		int best = -1;
+		double bestFitness = -1;
+		for (final int b : order) {
+			if (bound[b] < bestFitness) {
+				break;
+			}
+			final int[] entries = bucketEntries[b];
+			for (int k = 0; k < bucketCount[b]; k++) {
+				final int i = entries[k];
+
+				// Expected energy in cell - U[c]
+				final double energyExpectation = expectation[i];
+				final double distanceToCellNeg = 0 - distance(position, i, periodic);
+				final double cost = energyExpectation * (1 - Math.exp(distanceToCellNeg * q1));
+				final double cellFitness = energyExpectation - cost;
+
+				if (cellFitness > bestFitness || (cellFitness == bestFitness && i < best)) {
+					best = i;
+					bestFitness = cellFitness;
+				}
+			}
+		}
+
+		return best >= 0 ? cells[best] : -1;
+	}
+
+	private void add(final int cell, final double cellCenterX, final double cellCenterY) {
+		if (size == cells.length) {
+			final int capacity = size * 2;
+			cells = Arrays.copyOf(cells, capacity);
+			centerX = Arrays.copyOf(centerX, capacity);
+			centerY = Arrays.copyOf(centerY, capacity);
+			expectation = Arrays.copyOf(expectation, capacity);
+		}
+		cells[size] = cell;
+		centerX[size] = cellCenterX;
+		centerY[size] = cellCenterY;
+
+		final int bx = (int) Math.floor(cellCenterX / BUCKET_SIZE);
+		final int by = (int) Math.floor(cellCenterY / BUCKET_SIZE);
+		if (bx >= bucketsPerRow || by >= bucketRows) {
+			growBuckets(Math.max(bx + 1, bucketsPerRow), Math.max(by + 1, bucketRows));
+		}
+		final int b = by * bucketsPerRow + bx;
+		if (bucketEntries[b] == null) {
+			bucketEntries[b] = new int[8];
+		} else if (bucketCount[b] == bucketEntries[b].length) {
+			bucketEntries[b] = Arrays.copyOf(bucketEntries[b], bucketCount[b] * 2);
+		}
+		bucketEntries[b][bucketCount[b]++] = size;
+		size++;
+	}
+
+	private void growBuckets(final int newPerRow, final int newRows) {
+		final int[][] entries = new int[newPerRow * newRows][];
+		final int[] count = new int[entries.length];
+		final double[] maxExpectation = new double[entries.length];
+		for (int by = 0; by < bucketRows; by++) {
+			for (int bx = 0; bx < bucketsPerRow; bx++) {
+				final int from = by * bucketsPerRow + bx;
+				final int to = by * newPerRow + bx;
+				entries[to] = bucketEntries[from];
+				count[to] = bucketCount[from];
+				maxExpectation[to] = bucketMaxExpectation[from];
+			}
+		}
+		bucketsPerRow = newPerRow;
+		bucketRows = newRows;
+		bucketEntries = entries;
+		bucketCount = count;
+		bucketMaxExpectation = maxExpectation;
+	}
+
+	private int bucketOf(final int index) {
+		final int bx = (int) Math.floor(centerX[index] / BUCKET_SIZE);
+		final int by = (int) Math.floor(centerY[index] / BUCKET_SIZE);
+		return by * bucketsPerRow + bx;
+	}
+
+	private double minBucketDistance(final int bucket, final NdPoint position) {
+		final double x0 = (bucket % bucketsPerRow) * BUCKET_SIZE;
+		final double y0 = (bucket / bucketsPerRow) * BUCKET_SIZE;
+		final double dx = Math.max(0.0d, Math.max(x0 - position.getX(), position.getX() - (x0 + BUCKET_SIZE)));
+		final double dy = Math.max(0.0d, Math.max(y0 - position.getY(), position.getY() - (y0 + BUCKET_SIZE)));
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	private double maxBucketDistance(final int bucket, final NdPoint position) {
+		final double x0 = (bucket % bucketsPerRow) * BUCKET_SIZE;
+		final double y0 = (bucket / bucketsPerRow) * BUCKET_SIZE;
+		final double dx = Math.max(Math.abs(position.getX() - x0), Math.abs(position.getX() - (x0 + BUCKET_SIZE)));
+		final double dy = Math.max(Math.abs(position.getY() - y0), Math.abs(position.getY() - (y0 + BUCKET_SIZE)));
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * The distance from the position to the center of a cell, as calculated by the space.
+	 */
+	private double distance(final NdPoint position, final int index, final boolean periodic) {
+		if (periodic) {
+			return Globals.getSpace().getDistance(position, new NdPoint(centerX[index], centerY[index]));
+		}
+		final double dx = centerX[index] - position.getX();
+		final double dy = centerY[index] - position.getY();
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	private static boolean isPeriodic() {
+		final ContinuousSpace<?> space = Globals.getSpace();
+		return space != null && space.isPeriodic();
+	}
+
+	private int[] bucketsByBound(final double[] bound) {
+		return IntStream.range(0, bound.length).filter(b -> bucketCount[b] > 0).boxed()
+				.sorted((a, b) -> Double.compare(bound[b], bound[a])).mapToInt(Integer::intValue).toArray();
+	}
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.landscape;
+
+import dk.au.bios.porpoise.Agent;
+import dk.au.bios.porpoise.Porpoise;
+import repast.simphony.space.continuous.NdPoint;
+import repast.simphony.space.projection.ProjectionEvent;
+import repast.simphony.space.projection.ProjectionEvent.Type;
+import repast.simphony.space.projection.ProjectionListener;
+
+/**
+ * Keeps the number of porpoises in each block up to date based on the projection events of the space. The counts
+ * only change when a porpoise enters or leaves a block.
+ */
+public class BlockCounter implements ProjectionListener<Agent> {
+
+	/** Block of a porpoise which is not counted (not added, or in a cell without a block). */
+	public static final int NO_BLOCK = -1;
+
+	private final int[][] blocks;
+	private final int[] counts;
+
+	/**
+	 * Incremented after the counts have changed. Being volatile, the write publishes the updated counts to threads
+	 * taking a snapshot.
+	 */
+	private volatile int modCount = 0;
+
+	private volatile Snapshot snapshot;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param blocks The block number of each cell, indexed [x][y]. Negative values are cells without a block.
+	 */
+	public BlockCounter(final int[][] blocks) {
+		this.blocks = blocks;
+
+		int maxBlock = -1;
+		for (int x = 0; x < blocks.length; x++) {
+			for (int y = 0; y < blocks[x].length; y++) {
+				if (blocks[x][y] > maxBlock) {
+					maxBlock = blocks[x][y];
+				}
+			}
+		}
+		this.counts = new int[maxBlock + 1];
+		this.snapshot = new Snapshot(modCount, counts.clone());
+	}
+
+	public int getNumBlocks() {
+		return counts.length;
+	}
+
+	/**
+	 * Returns the porpoise counts of all blocks. The returned array must not be modified. It is only copied when a
+	 * count has changed since the previous snapshot, so repeated calls are cheap while the porpoises stay within
+	 * their blocks.
+	 * <p>
+	 * The counts are only updated by the thread moving the porpoises. A snapshot taken on another thread while
+	 * porpoises are being moved may mix counts from before and after a move.
+	 *
+	 * @return The number of porpoises in each block, indexed by block number.
+	 */
+	public int[] getSnapshot() {
+		Snapshot snap = snapshot;
+		final int currentModCount = modCount;
+		if (snap.modCount != currentModCount) {
+			snap = new Snapshot(currentModCount, counts.clone());
+			snapshot = snap;
+		}
+		return snap.counts;
+	}
+
+	private int blockAt(final NdPoint point) {
+		final int block = blocks[Agent.ndXToGridX(point.getX())][Agent.ndYToGridY(point.getY())];
+		return block >= 0 ? block : NO_BLOCK;
+	}
+
+	private void setBlock(final Porpoise p, final int newBlock) {
+		final int oldBlock = p.getCountedBlock();
+		if (oldBlock != newBlock) {
+			if (oldBlock != NO_BLOCK) {
+				counts[oldBlock]--;
+			}
+			if (newBlock != NO_BLOCK) {
+				counts[newBlock]++;
+			}
+			p.setCountedBlock(newBlock);
+			modCount++;
+		}
+	}
+
+	@Override
+	public void projectionEventOccurred(final ProjectionEvent<Agent> evt) {
+		if (evt.getSubject() instanceof Porpoise) {
+			final Porpoise p = (Porpoise) evt.getSubject();
+
+			if (evt.getType() == Type.OBJECT_MOVED || evt.getType() == Type.OBJECT_ADDED) {
+				setBlock(p, blockAt(p.getPosition()));
+			} else if (evt.getType() == Type.OBJECT_REMOVED) {
+				setBlock(p, NO_BLOCK);
+			}
+		}
+	}
+
+	private static class Snapshot {
+		private final int modCount;
+		private final int[] counts;
+
+		Snapshot(final int modCount, final int[] counts) {
+			this.modCount = modCount;
+			this.counts = counts;
+		}
+	}
+
+}
@@ -59,6 +59,37 @@ public class CellData {
 	private final Optional<Suntimes> suntimes;
 	private final Pair[] foodProbAboveZeroCells;
 
+	/** Cells which are valid random dispersal targets, for the maxent data currently loaded. */
+	private volatile DispersalTargetMask dispersalTargets;
+
+	/**
+	 * Bitmask of the cells with depth above 0 and maxent above 0, built for one set of monthly maxent data.
+	 */
+	private static final class DispersalTargetMask {
+		private final double[][] maxEnt;
+		private final int height;
+		private final long[] bits;
+
+		private DispersalTargetMask(final double[][] maxEnt, final double[][] depth) {
+			this.maxEnt = maxEnt;
+			this.height = depth.length > 0 ? depth[0].length : 0;
+			this.bits = new long[(depth.length * height + 63) / 64];
+			for (int x = 0; x < depth.length; x++) {
+				for (int y = 0; y < height; y++) {
+					if (depth[x][y] > 0 && maxEnt[x][y] > 0.0f) {
+						final int bit = x * height + y;
+						bits[bit >>> 6] |= 1L << bit;
+					}
+				}
+			}
+		}
+
+		private boolean get(final int x, final int y) {
+			final int bit = x * height + y;
+			return (bits[bit >>> 6] & (1L << bit)) != 0;
+		}
+	}
+
 	public CellData(final String landscape, final List<CellDataSource> sources) throws IOException {
 		this.distanceToCoast = new SimpleDataFile(landscape, LandscapeLoader.DISTTOCOAST_FILE, sources);
 		this.depth = new SimpleDataFile(landscape, LandscapeLoader.BATHY_FILE, sources);
@@ -239,6 +270,34 @@ public class CellData {
 		}
 	}
 
+	/**
+	 * Whether a cell is a valid target for a random dispersal, i.e. has a depth above 0 and a maxent value above 0 in
+	 * the current month. The answer is looked up in a mask built once per loaded month of maxent data.
+	 *
+	 * @param x The x coordinate in the grid.
+	 * @param y The y coordinate in the grid.
+	 * @return true if the cell is a valid target, false otherwise (including cells outside the landscape).
+	 */
+	public boolean isValidDispersalTarget(final int x, final int y) {
+		final double[][] depthData = depth.getData();
+		if (x < 0 || y < 0 || x >= depthData.length || y >= depthData[x].length) {
+			return false;
+		}
+
+		final double[][] maxEnt = getMaxEnt();
+		DispersalTargetMask mask = dispersalTargets;
+		if (mask == null || mask.maxEnt != maxEnt) {
+			synchronized (this) {
+				mask = dispersalTargets;
+				if (mask == null || mask.maxEnt != maxEnt) {
+					mask = new DispersalTargetMask(maxEnt, depthData);
+					dispersalTargets = mask;
+				}
+			}
+		}
+		return mask.get(x, y);
+	}
+
 	public Optional<Suntimes> getSuntimes() {
 		return suntimes;
 	}
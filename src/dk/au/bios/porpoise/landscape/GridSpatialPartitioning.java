@@ -25,12 +25,18 @@
  * this exception also makes it possible to release a modified version which carries forward this exception.
  */
 
+
 package dk.au.bios.porpoise.landscape;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashSet;
-import java.util.Map;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import dk.au.bios.porpoise.Agent;
 import dk.au.bios.porpoise.Globals;
@@ -40,163 +46,783 @@ import repast.simphony.space.projection.ProjectionEvent;
 import repast.simphony.space.projection.ProjectionEvent.Type;
 import repast.simphony.space.projection.ProjectionListener;
 
+/**
+ * Partitions the landscape into "super-grid" cells and keeps track of the porpoises in each cell.
+ *
+ * Every porpoise occupies a slot in a set of dense arrays. The porpoises in a cell are linked through the slot arrays
+ * (intrusive doubly linked list), so moving a porpoise between cells does not allocate. The visitor and cursor
+ * queries do not allocate either, and return each porpoise exactly once. The slot is stored on the porpoise, so a
+ * porpoise can only be tracked by one partitioning at a time.
+ *
+ * The partitioning can be adaptive (a two-level grid). A cell holding more than splitThreshold porpoises is split
+ * into subdivisions x subdivisions sub-cells, and merged again when it holds fewer than mergeThreshold porpoises.
+ * This keeps the number of candidates examined by the distance based queries low in dense areas, without paying for
+ * fine cells in the sparse areas.
+ *
+ * The radius, segment and nearest neighbour queries prune whole cells and sub-cells based on their distance to the
+ * query, and respect wrap-around borders. The neighborhood queries return whole boxes of cells and do not wrap.
+ */
 public class GridSpatialPartitioning implements ProjectionListener<Agent> {
 
-	private static class Partition {
+	/**
+	 * Visitor receiving a porpoise and its distance (in grid units) to the query point.
+	 */
+	@FunctionalInterface
+	public interface DistanceVisitor {
+		void visit(Porpoise p, double distance);
+	}
 
-		private final int x;
-		private final int y;
-		private Set<Porpoise> porpoises = new HashSet<>();
+	private static final int NONE = -1;
+	private static final int INITIAL_CAPACITY = 1024;
 
-		Partition(int x, int y) {
-			this.x = x;
-			this.y = y;
-		}
+	private final int xDim;
+	private final int yDim;
+	private final int cellWidth;
+	private final int cellHeight;
+	private final int worldWidth;
+	private final int worldHeight;
 
-		void add(Porpoise p) {
-			porpoises.add(p);
-		}
+	/** True if the space wraps around at the borders. */
+	private final boolean periodic;
 
-		void remove(Porpoise p) {
-			porpoises.remove(p);
-		}
+	/** True if the cells tile the periodic world exactly, allowing the cell indexes to wrap. */
+	private final boolean wrapCells;
 
-		Set<Porpoise> getPorpoises() {
-			return porpoises;
-		}
+	/** The number of sub-cells along each axis of a split cell. */
+	private final int subdivisions;
+	private final int subCellWidth;
+	private final int subCellHeight;
+	private final int splitThreshold;
+	private final int mergeThreshold;
 
-		@Override
-		public String toString() {
-			return "GSP_Partition[" + x + "," + y + "]{porpoiseCount: " + porpoises.size() + "}";
-		}
-	}
+	/** First slot in each cell which is not split, indexed by y * xDim + x. */
+	private final int[] cellHead;
+	private final int[] cellCount;
 
-	private Partition[][] partitions;
-	private Map<Long, Partition> porpToPartitionMap = new HashMap<>();
+	/** Index of the first sub-cell of each split cell in subCellHead, NONE if the cell is not split. */
+	private final int[] cellSubBase;
+	private int[] subCellHead = new int[0];
+	private int[] freeSubBases = new int[0];
+	private int freeSubBaseCount = 0;
+
+	private Porpoise[] slotPorpoise = new Porpoise[INITIAL_CAPACITY];
+	private int[] slotCell = new int[INITIAL_CAPACITY];
+	private int[] slotSub = new int[INITIAL_CAPACITY];
+	private int[] slotNext = new int[INITIAL_CAPACITY];
+	private int[] slotPrev = new int[INITIAL_CAPACITY];
+	private int slotsUsed = 0;
+	private int freeHead = NONE;
+	private int size = 0;
 
 	/**
-	 * Constructor.
+	 * Constructor for a fixed (non-adaptive) partitioning.
 	 *
 	 * @param xCells The number of regular cells on the x-axis per cell
 	 * @param yCells The number of regular cells on the y-axis per cell
 	 */
 	public GridSpatialPartitioning(int xCells, int yCells) {
-		final int xDim = (int) Math.ceil((double) Globals.getWorldWidth() / xCells);
-		final int yDim = (int) Math.ceil((double) Globals.getWorldHeight() / yCells);
-		partitions = new Partition[yDim][];
-		for (int y = 0; y < yDim; y++) {
-			partitions[y] = new Partition[xDim];
-			for (int x = 0; x < xDim; x++) {
-				partitions[y][x] = new Partition(x, y);
-			}
+		this(xCells, yCells, 1, Integer.MAX_VALUE, 0);
+	}
+
+	/**
+	 * Constructor for an adaptive partitioning.
+	 *
+	 * @param xCells The number of regular cells on the x-axis per cell
+	 * @param yCells The number of regular cells on the y-axis per cell
+	 * @param subdivisions The number of sub-cells along each axis when a cell is split
+	 * @param splitThreshold A cell is split when it holds more porpoises than this
+	 * @param mergeThreshold A split cell is merged when it holds fewer porpoises than this
+	 */
+	public GridSpatialPartitioning(int xCells, int yCells, int subdivisions, int splitThreshold, int mergeThreshold) {
+		if (subdivisions < 1 || mergeThreshold >= splitThreshold) {
+			throw new IllegalArgumentException("Invalid adaptive partitioning, subdivisions: " + subdivisions
+					+ ", splitThreshold: " + splitThreshold + ", mergeThreshold: " + mergeThreshold);
 		}
+		worldWidth = Globals.getWorldWidth();
+		worldHeight = Globals.getWorldHeight();
+		xDim = (int) Math.ceil((double) worldWidth / xCells);
+		yDim = (int) Math.ceil((double) worldHeight / yCells);
+		cellWidth = (int) Math.ceil((double) worldWidth / xDim);
+		cellHeight = (int) Math.ceil((double) worldHeight / yDim);
+		periodic = Globals.getSpace() != null && Globals.getSpace().isPeriodic();
+		wrapCells = periodic && xDim * cellWidth == worldWidth && yDim * cellHeight == worldHeight;
+		this.subdivisions = subdivisions;
+		this.subCellWidth = (int) Math.ceil((double) cellWidth / subdivisions);
+		this.subCellHeight = (int) Math.ceil((double) cellHeight / subdivisions);
+		this.splitThreshold = subdivisions > 1 ? splitThreshold : Integer.MAX_VALUE;
+		this.mergeThreshold = mergeThreshold;
+		cellHead = new int[xDim * yDim];
+		cellCount = new int[xDim * yDim];
+		cellSubBase = new int[xDim * yDim];
+		Arrays.fill(cellHead, NONE);
+		Arrays.fill(cellSubBase, NONE);
 	}
 
 	public int getWidth() {
-		return partitions[0].length;
+		return xDim;
 	}
 
 	public int getHeight() {
-		return partitions.length;
+		return yDim;
+	}
+
+	/**
+	 * @return The number of porpoises in the partitioning.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return The number of cells currently split into sub-cells.
+	 */
+	public int getSplitCellCount() {
+		int count = 0;
+		for (int i = 0; i < cellSubBase.length; i++) {
+			if (cellSubBase[i] != NONE) {
+				count++;
+			}
+		}
+		return count;
 	}
 
 	public Set<Porpoise> getPorpoisesInPartition(NdPoint point) {
-		return getPartitionForNdPoint(point).getPorpoises();
+		Set<Porpoise> porps = new HashSet<>();
+		forEachInCells(calculateIdxX(point), calculateIdxY(point), calculateIdxX(point), calculateIdxY(point),
+				porps::add);
+		return porps;
 	}
 
 	public Set<Porpoise> getPorpoisesInNeighborhood(NdPoint point) {
 		Set<Porpoise> porps = new HashSet<>();
+		forEachInNeighborhood(point, porps::add);
+		return porps;
+	}
 
-		int yIdx = calculateIdxY(point);
+	public Set<Porpoise> getPorpoisesInNeighborhood(NdPoint start, NdPoint end) {
+		Set<Porpoise> porps = new HashSet<>();
+		forEachInNeighborhood(start, end, porps::add);
+		return porps;
+	}
+
+	/**
+	 * Visits the porpoises in the 3x3 cells surrounding the point.
+	 *
+	 * @param point The point
+	 * @param visitor Called once for each porpoise
+	 */
+	public void forEachInNeighborhood(NdPoint point, Consumer<Porpoise> visitor) {
 		int xIdx = calculateIdxX(point);
-		for (int y = yIdx - 1; y <= yIdx + 1; y++) {
-			if (y >= 0 && y < partitions.length) {
-				for (int x = xIdx - 1; x <= xIdx + 1; x++) {
-					if (x >= 0 && x < partitions[y].length) {
-						porps.addAll(partitions[y][x].getPorpoises());
+		int yIdx = calculateIdxY(point);
+		forEachInCells(xIdx - 1, yIdx - 1, xIdx + 1, yIdx + 1, visitor);
+	}
+
+	/**
+	 * Visits the porpoises in the cells of the bounding box of start and end, expanded by one cell in each direction.
+	 *
+	 * @param start One corner of the box
+	 * @param end The opposite corner of the box
+	 * @param visitor Called once for each porpoise
+	 */
+	public void forEachInNeighborhood(NdPoint start, NdPoint end, Consumer<Porpoise> visitor) {
+		int xIdx1 = calculateIdxX(start);
+		int yIdx1 = calculateIdxY(start);
+		int xIdx2 = calculateIdxX(end);
+		int yIdx2 = calculateIdxY(end);
+		forEachInCells(Math.min(xIdx1, xIdx2) - 1, Math.min(yIdx1, yIdx2) - 1, Math.max(xIdx1, xIdx2) + 1,
+				Math.max(yIdx1, yIdx2) + 1, visitor);
+	}
+
+	private void forEachInCells(int x1, int y1, int x2, int y2, Consumer<Porpoise> visitor) {
+		final int yFrom = Math.max(y1, 0);
+		final int yTo = Math.min(y2, yDim - 1);
+		final int xFrom = Math.max(x1, 0);
+		final int xTo = Math.min(x2, xDim - 1);
+		for (int y = yFrom; y <= yTo; y++) {
+			for (int x = xFrom; x <= xTo; x++) {
+				final int cell = y * xDim + x;
+				final int subBase = cellSubBase[cell];
+				if (subBase == NONE) {
+					for (int slot = cellHead[cell]; slot != NONE; slot = slotNext[slot]) {
+						visitor.accept(slotPorpoise[slot]);
+					}
+				} else {
+					for (int sub = 0; sub < subdivisions * subdivisions; sub++) {
+						for (int slot = subCellHead[subBase + sub]; slot != NONE; slot = slotNext[slot]) {
+							visitor.accept(slotPorpoise[slot]);
+						}
 					}
 				}
 			}
 		}
+	}
 
-		return porps;
+	/**
+	 * Visits the porpoises within the radius of the point. Cells entirely outside the radius are skipped.
+	 *
+	 * @param point The center of the query
+	 * @param radius The radius in grid units, porpoises at exactly this distance are included
+	 * @param visitor Called once for each porpoise within the radius, with the distance to the point
+	 */
+	public void forEachWithinRadius(NdPoint point, double radius, DistanceVisitor visitor) {
+		final double px = point.getX();
+		final double py = point.getY();
+		final int x1 = (int) Math.floor((px - radius) / cellWidth);
+		final int x2 = (int) Math.floor((px + radius) / cellWidth);
+		final int y1 = (int) Math.floor((py - radius) / cellHeight);
+		final int y2 = (int) Math.floor((py + radius) / cellHeight);
+		final boolean fullX = isFullSpan(x1, x2, xDim);
+		final boolean fullY = isFullSpan(y1, y2, yDim);
+		final int xFrom = fullX ? 0 : clipX(x1);
+		final int xTo = fullX ? xDim - 1 : clipX(x2);
+		final int yFrom = fullY ? 0 : clipY(y1);
+		final int yTo = fullY ? yDim - 1 : clipY(y2);
+		final double radiusSq = radius * radius;
+
+		for (int y = yFrom; y <= yTo; y++) {
+			final double dy = fullY ? 0.0d : axisDistance(py, (double) y * cellHeight, cellHeight);
+			for (int x = xFrom; x <= xTo; x++) {
+				final double dx = fullX ? 0.0d : axisDistance(px, (double) x * cellWidth, cellWidth);
+				if (dx * dx + dy * dy > radiusSq) {
+					continue;
+				}
+				final int cell = Math.floorMod(y, yDim) * xDim + Math.floorMod(x, xDim);
+				final int subBase = cellSubBase[cell];
+				if (subBase == NONE) {
+					visitWithinRadius(cellHead[cell], point, radius, visitor);
+				} else {
+					for (int sy = 0; sy < subdivisions; sy++) {
+						final double sdy = fullY ? 0.0d
+								: axisDistance(py, (double) y * cellHeight + sy * subCellHeight, subCellHeight);
+						for (int sx = 0; sx < subdivisions; sx++) {
+							final double sdx = fullX ? 0.0d
+									: axisDistance(px, (double) x * cellWidth + sx * subCellWidth, subCellWidth);
+							if (sdx * sdx + sdy * sdy <= radiusSq) {
+								visitWithinRadius(subCellHead[subBase + sy * subdivisions + sx], point, radius,
+										visitor);
+							}
+						}
+					}
+				}
+			}
+		}
 	}
 
-	public Set<Porpoise> getPorpoisesInNeighborhood(NdPoint start, NdPoint end) {
-		Set<Porpoise> porps = new HashSet<>();
+	private void visitWithinRadius(int head, NdPoint point, double radius, DistanceVisitor visitor) {
+		for (int slot = head; slot != NONE; slot = slotNext[slot]) {
+			final Porpoise p = slotPorpoise[slot];
+			final double dist = Globals.getSpace().getDistance(point, p.getPosition());
+			if (dist <= radius) {
+				visitor.visit(p, dist);
+			}
+		}
+	}
 
-		int yIdx1 = calculateIdxY(start);
-		int xIdx1 = calculateIdxX(start);
-		int yIdx2 = calculateIdxY(end);
-		int xIdx2 = calculateIdxX(end);
-		
-		int yStartIdx = Math.min(yIdx1, yIdx2);
-		int xStartIdx = Math.min(xIdx1, xIdx2);
-		int yEndIdx = Math.max(yIdx1, yIdx2);
-		int xEndIdx = Math.max(xIdx1, xIdx2);
-
-		for (int y = yStartIdx - 1; y <= yEndIdx + 1; y++) {
-			if (y >= 0 && y < partitions.length) {
-				for (int x = xStartIdx - 1; x <= xEndIdx + 1; x++) {
-					if (x >= 0 && x < partitions[y].length) {
-						porps.addAll(partitions[y][x].getPorpoises());
+	/**
+	 * Visits the porpoises within maxDistance of the line segment from start to end. Cells which cannot contain
+	 * such porpoises are skipped. In a periodic space the distance is the shortest distance over the wrapped
+	 * positions of the porpoise, assuming the segment is shorter than the world.
+	 *
+	 * @param start Start of the segment
+	 * @param end End of the segment
+	 * @param maxDistance The maximum distance to the segment in grid units
+	 * @param visitor Called once for each porpoise near the segment
+	 */
+	public void forEachNearSegment(NdPoint start, NdPoint end, double maxDistance, Consumer<Porpoise> visitor) {
+		final double sx = start.getX();
+		final double sy = start.getY();
+		final double ex = end.getX();
+		final double ey = end.getY();
+		final int x1 = (int) Math.floor((Math.min(sx, ex) - maxDistance) / cellWidth);
+		final int x2 = (int) Math.floor((Math.max(sx, ex) + maxDistance) / cellWidth);
+		final int y1 = (int) Math.floor((Math.min(sy, ey) - maxDistance) / cellHeight);
+		final int y2 = (int) Math.floor((Math.max(sy, ey) + maxDistance) / cellHeight);
+		final boolean fullX = isFullSpan(x1, x2, xDim);
+		final boolean fullY = isFullSpan(y1, y2, yDim);
+		final int xFrom = fullX ? 0 : clipX(x1);
+		final int xTo = fullX ? xDim - 1 : clipX(x2);
+		final int yFrom = fullY ? 0 : clipY(y1);
+		final int yTo = fullY ? yDim - 1 : clipY(y2);
+		// When a wrapping query covers the whole axis the cell positions are ambiguous, so no cells are pruned and the
+		// porpoises are checked with the wrapped distance instead
+		final boolean prune = !fullX && !fullY;
+		final double cellLimit = maxDistance + halfDiagonal(cellWidth, cellHeight);
+		final double subCellLimit = maxDistance + halfDiagonal(subCellWidth, subCellHeight);
+		final double maxDistanceSq = maxDistance * maxDistance;
+
+		for (int y = yFrom; y <= yTo; y++) {
+			for (int x = xFrom; x <= xTo; x++) {
+				final double cellX = (double) x * cellWidth;
+				final double cellY = (double) y * cellHeight;
+				if (prune && distanceToSegmentSq(cellX + 0.5d * cellWidth, cellY + 0.5d * cellHeight, sx, sy, ex,
+						ey) > cellLimit * cellLimit) {
+					continue;
+				}
+				final int col = Math.floorMod(x, xDim);
+				final int row = Math.floorMod(y, yDim);
+				final int cell = row * xDim + col;
+				// Offset moving porpoises in a wrapped cell next to the segment
+				final double shiftX = (double) (x - col) * cellWidth;
+				final double shiftY = (double) (y - row) * cellHeight;
+				final int subBase = cellSubBase[cell];
+				if (subBase == NONE) {
+					visitNearSegment(cellHead[cell], shiftX, shiftY, sx, sy, ex, ey, maxDistanceSq, !prune, visitor);
+				} else {
+					for (int sub = 0; sub < subdivisions * subdivisions; sub++) {
+						final double subX = cellX + (sub % subdivisions + 0.5d) * subCellWidth;
+						final double subY = cellY + (sub / subdivisions + 0.5d) * subCellHeight;
+						if (prune && distanceToSegmentSq(subX, subY, sx, sy, ex, ey) > subCellLimit * subCellLimit) {
+							continue;
+						}
+						visitNearSegment(subCellHead[subBase + sub], shiftX, shiftY, sx, sy, ex, ey, maxDistanceSq,
+								!prune, visitor);
 					}
 				}
 			}
 		}
+	}
 
-		return porps;
+	/**
+	 * Visits the porpoises in a list within the distance of the segment. If wrapped, the shortest distance over the
+	 * positions of the porpoise wrapped by up to one world size is used instead of the shifted position.
+	 */
+	private void visitNearSegment(int head, double shiftX, double shiftY, double sx, double sy, double ex, double ey,
+			double maxDistanceSq, boolean wrapped, Consumer<Porpoise> visitor) {
+		for (int slot = head; slot != NONE; slot = slotNext[slot]) {
+			final Porpoise p = slotPorpoise[slot];
+			final NdPoint pos = p.getPosition();
+			final double distSq = wrapped ? wrappedDistanceToSegmentSq(pos.getX(), pos.getY(), sx, sy, ex, ey)
+					: distanceToSegmentSq(pos.getX() + shiftX, pos.getY() + shiftY, sx, sy, ex, ey);
+			if (distSq <= maxDistanceSq) {
+				visitor.accept(p);
+			}
+		}
 	}
 
-	private Partition getPartitionForNdPoint(NdPoint point) {
-		return partitions[calculateIdxY(point)][calculateIdxX(point)];
+	private double wrappedDistanceToSegmentSq(double px, double py, double sx, double sy, double ex, double ey) {
+		double min = Double.POSITIVE_INFINITY;
+		for (int wy = -1; wy <= 1; wy++) {
+			for (int wx = -1; wx <= 1; wx++) {
+				min = Math.min(min, distanceToSegmentSq(px + wx * (double) worldWidth, py + wy * (double) worldHeight,
+						sx, sy, ex, ey));
+			}
+		}
+		return min;
+	}
+
+	/**
+	 * Finds the porpoises closest to a point. The search radius is doubled until enough porpoises are found.
+	 *
+	 * @param point The point
+	 * @param count The maximum number of porpoises to return
+	 * @return Up to count porpoises, closest first. Porpoises at the same distance are ordered by id.
+	 */
+	public List<Porpoise> getNearestPorpoises(NdPoint point, int count) {
+		final List<Porpoise> found = new ArrayList<>();
+		final List<Double> distances = new ArrayList<>();
+		if (count <= 0 || size == 0) {
+			return found;
+		}
+
+		final double maxRadius = Math.sqrt((double) worldWidth * worldWidth + (double) worldHeight * worldHeight);
+		double radius = Math.min(cellWidth, cellHeight);
+		while (true) {
+			found.clear();
+			distances.clear();
+			forEachWithinRadius(point, radius, (p, dist) -> {
+				found.add(p);
+				distances.add(dist);
+			});
+			if (found.size() >= count || radius >= maxRadius) {
+				break;
+			}
+			radius *= 2.0d;
+		}
+
+		final Integer[] order = new Integer[found.size()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.<Integer>comparingDouble(distances::get)
+				.thenComparingLong(i -> found.get(i).getId()));
+
+		final List<Porpoise> nearest = new ArrayList<>(Math.min(count, order.length));
+		for (int i = 0; i < order.length && i < count; i++) {
+			nearest.add(found.get(order[i]));
+		}
+		return nearest;
+	}
+
+	private boolean isFullSpan(int from, int to, int dim) {
+		return periodic && (!wrapCells || to - from + 1 >= dim);
+	}
+
+	private int clipX(int x) {
+		return periodic ? x : Math.max(0, Math.min(x, xDim - 1));
+	}
+
+	private int clipY(int y) {
+		return periodic ? y : Math.max(0, Math.min(y, yDim - 1));
+	}
+
+	/**
+	 * @return The distance along one axis from the coordinate to the interval [low, low + size].
+	 */
+	private static double axisDistance(double coord, double low, int size) {
+		final double high = low + size;
+		if (coord < low) {
+			return low - coord;
+		} else if (coord > high) {
+			return coord - high;
+		}
+		return 0.0d;
+	}
+
+	private static double halfDiagonal(int width, int height) {
+		return 0.5d * Math.sqrt((double) width * width + (double) height * height);
+	}
+
+	private static double distanceToSegmentSq(double px, double py, double sx, double sy, double ex, double ey) {
+		final double vx = ex - sx;
+		final double vy = ey - sy;
+		final double lenSq = vx * vx + vy * vy;
+		double t = 0.0d;
+		if (lenSq > 0.0d) {
+			t = ((px - sx) * vx + (py - sy) * vy) / lenSq;
+			t = Math.max(0.0d, Math.min(1.0d, t));
+		}
+		final double dx = px - (sx + t * vx);
+		final double dy = py - (sy + t * vy);
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * Creates a reusable cursor for iterating the porpoises in a neighborhood. The cursor itself is the only
+	 * allocation; resetting and iterating it does not allocate.
+	 *
+	 * @return A new cursor, positioned at an empty neighborhood.
+	 */
+	public Cursor newCursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * Reusable iterator over the porpoises in a box of cells. The partitioning must not be modified while the cursor
+	 * is in use.
+	 */
+	public final class Cursor implements Iterator<Porpoise> {
+		private int xFrom;
+		private int xTo;
+		private int yTo;
+		private int x;
+		private int y;
+		private int subBase = NONE;
+		private int sub;
+		private int slot = NONE;
+
+		private Cursor() {
+			xFrom = 0;
+			xTo = -1;
+			yTo = -1;
+			y = 0;
+			x = 0;
+		}
+
+		/**
+		 * Positions the cursor at the 3x3 cells surrounding the point.
+		 *
+		 * @param point The point
+		 * @return This cursor
+		 */
+		public Cursor reset(NdPoint point) {
+			int xIdx = calculateIdxX(point);
+			int yIdx = calculateIdxY(point);
+			return resetCells(xIdx - 1, yIdx - 1, xIdx + 1, yIdx + 1);
+		}
+
+		/**
+		 * Positions the cursor at the bounding box of start and end, expanded by one cell in each direction.
+		 *
+		 * @param start One corner of the box
+		 * @param end The opposite corner of the box
+		 * @return This cursor
+		 */
+		public Cursor reset(NdPoint start, NdPoint end) {
+			int xIdx1 = calculateIdxX(start);
+			int yIdx1 = calculateIdxY(start);
+			int xIdx2 = calculateIdxX(end);
+			int yIdx2 = calculateIdxY(end);
+			return resetCells(Math.min(xIdx1, xIdx2) - 1, Math.min(yIdx1, yIdx2) - 1, Math.max(xIdx1, xIdx2) + 1,
+					Math.max(yIdx1, yIdx2) + 1);
+		}
+
+		private Cursor resetCells(int x1, int y1, int x2, int y2) {
+			xFrom = Math.max(x1, 0);
+			xTo = Math.min(x2, xDim - 1);
+			yTo = Math.min(y2, yDim - 1);
+			y = Math.max(y1, 0);
+			x = xFrom - 1;
+			subBase = NONE;
+			slot = NONE;
+			advance();
+			return this;
+		}
+
+		private void advance() {
+			if (slot != NONE) {
+				slot = slotNext[slot];
+			}
+			while (slot == NONE) {
+				if (subBase != NONE && sub + 1 < subdivisions * subdivisions) {
+					sub++;
+					slot = subCellHead[subBase + sub];
+					continue;
+				}
+				x++;
+				if (x > xTo) {
+					x = xFrom;
+					y++;
+				}
+				if (y > yTo || xFrom > xTo) {
+					return;
+				}
+				final int cell = y * xDim + x;
+				subBase = cellSubBase[cell];
+				if (subBase == NONE) {
+					slot = cellHead[cell];
+				} else {
+					sub = 0;
+					slot = subCellHead[subBase];
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return slot != NONE;
+		}
+
+		@Override
+		public Porpoise next() {
+			if (slot == NONE) {
+				throw new NoSuchElementException();
+			}
+			final Porpoise p = slotPorpoise[slot];
+			advance();
+			return p;
+		}
 	}
 
 	private int calculateIdxX(NdPoint point) {
-		int cellWidth = (int) Math.ceil((double) Globals.getWorldWidth() / partitions[0].length);
 		int xIdx = (int) Math.floor(point.getX() / cellWidth);
 		if (xIdx < 0) {
 			xIdx = 0;
+		} else if (xIdx >= xDim) {
+			xIdx = xDim - 1;
 		}
 
 		return xIdx;
 	}
 
 	private int calculateIdxY(NdPoint point) {
-		int cellHeight = (int) Math.ceil((double) Globals.getWorldHeight() / partitions.length);
 		int yIdx = (int) Math.floor(point.getY() / cellHeight);
 		if (yIdx < 0) {
 			yIdx = 0;
+		} else if (yIdx >= yDim) {
+			yIdx = yDim - 1;
 		}
 
 		return yIdx;
 	}
 
+	private int calculateCell(NdPoint point) {
+		return calculateIdxY(point) * xDim + calculateIdxX(point);
+	}
+
+	/**
+	 * @return The sub-cell of the point within the cell, or NONE if the cell is not split.
+	 */
+	private int calculateSub(int cell, NdPoint point) {
+		if (cellSubBase[cell] == NONE) {
+			return NONE;
+		}
+		final double localX = point.getX() - (double) (cell % xDim) * cellWidth;
+		final double localY = point.getY() - (double) (cell / xDim) * cellHeight;
+		final int sx = Math.max(0, Math.min(subdivisions - 1, (int) Math.floor(localX / subCellWidth)));
+		final int sy = Math.max(0, Math.min(subdivisions - 1, (int) Math.floor(localY / subCellHeight)));
+		return sy * subdivisions + sx;
+	}
+
+	/**
+	 * @return The slot of the porpoise in this partitioning, or NONE if it is not present.
+	 */
+	private int slotOf(Porpoise p) {
+		final int slot = p.getSpatialSlot();
+		if (slot >= 0 && slot < slotsUsed && slotPorpoise[slot] == p) {
+			return slot;
+		}
+		return NONE;
+	}
+
+	private int add(Porpoise p, int cell, int sub) {
+		int slot;
+		if (freeHead != NONE) {
+			slot = freeHead;
+			freeHead = slotNext[slot];
+		} else {
+			if (slotsUsed == slotPorpoise.length) {
+				final int newCapacity = slotPorpoise.length * 2;
+				slotPorpoise = Arrays.copyOf(slotPorpoise, newCapacity);
+				slotCell = Arrays.copyOf(slotCell, newCapacity);
+				slotSub = Arrays.copyOf(slotSub, newCapacity);
+				slotNext = Arrays.copyOf(slotNext, newCapacity);
+				slotPrev = Arrays.copyOf(slotPrev, newCapacity);
+			}
+			slot = slotsUsed++;
+		}
+
+		slotPorpoise[slot] = p;
+		p.setSpatialSlot(slot);
+		link(slot, cell, sub);
+		size++;
+		return slot;
+	}
+
+	private void remove(int slot) {
+		unlink(slot);
+		slotPorpoise[slot].setSpatialSlot(NONE);
+		slotPorpoise[slot] = null;
+		slotNext[slot] = freeHead;
+		freeHead = slot;
+		size--;
+	}
+
+	private int getHead(int cell, int sub) {
+		return sub == NONE ? cellHead[cell] : subCellHead[cellSubBase[cell] + sub];
+	}
+
+	private void setHead(int cell, int sub, int slot) {
+		if (sub == NONE) {
+			cellHead[cell] = slot;
+		} else {
+			subCellHead[cellSubBase[cell] + sub] = slot;
+		}
+	}
+
+	private void link(int slot, int cell, int sub) {
+		final int head = getHead(cell, sub);
+		slotCell[slot] = cell;
+		slotSub[slot] = sub;
+		slotPrev[slot] = NONE;
+		slotNext[slot] = head;
+		if (head != NONE) {
+			slotPrev[head] = slot;
+		}
+		setHead(cell, sub, slot);
+		cellCount[cell]++;
+	}
+
+	private void unlink(int slot) {
+		final int cell = slotCell[slot];
+		final int prev = slotPrev[slot];
+		final int next = slotNext[slot];
+		if (prev != NONE) {
+			slotNext[prev] = next;
+		} else {
+			setHead(cell, slotSub[slot], next);
+		}
+		if (next != NONE) {
+			slotPrev[next] = prev;
+		}
+		slotCell[slot] = NONE;
+		cellCount[cell]--;
+	}
+
+	/**
+	 * Splits the cell into sub-cells and moves its porpoises into them.
+	 */
+	private void split(int cell) {
+		final int subCount = subdivisions * subdivisions;
+		final int subBase;
+		if (freeSubBaseCount > 0) {
+			subBase = freeSubBases[--freeSubBaseCount];
+		} else {
+			subBase = subCellHead.length;
+			subCellHead = Arrays.copyOf(subCellHead, subBase + subCount);
+		}
+		Arrays.fill(subCellHead, subBase, subBase + subCount, NONE);
+
+		int slot = cellHead[cell];
+		cellHead[cell] = NONE;
+		cellCount[cell] = 0;
+		cellSubBase[cell] = subBase;
+		while (slot != NONE) {
+			final int next = slotNext[slot];
+			link(slot, cell, calculateSub(cell, slotPorpoise[slot].getPosition()));
+			slot = next;
+		}
+	}
+
+	/**
+	 * Moves the porpoises of the sub-cells back into the cell and releases the sub-cells.
+	 */
+	private void merge(int cell) {
+		final int subBase = cellSubBase[cell];
+		cellSubBase[cell] = NONE;
+		cellCount[cell] = 0;
+		for (int sub = 0; sub < subdivisions * subdivisions; sub++) {
+			int slot = subCellHead[subBase + sub];
+			subCellHead[subBase + sub] = NONE;
+			while (slot != NONE) {
+				final int next = slotNext[slot];
+				link(slot, cell, NONE);
+				slot = next;
+			}
+		}
+
+		if (freeSubBaseCount == freeSubBases.length) {
+			freeSubBases = Arrays.copyOf(freeSubBases, Math.max(8, freeSubBases.length * 2));
+		}
+		freeSubBases[freeSubBaseCount++] = subBase;
+	}
+
+	private void adapt(int cell) {
+		if (cellSubBase[cell] == NONE) {
+			if (cellCount[cell] > splitThreshold) {
+				split(cell);
+			}
+		} else if (cellCount[cell] < mergeThreshold) {
+			merge(cell);
+		}
+	}
+
 	@Override
 	public void projectionEventOccurred(ProjectionEvent<Agent> evt) {
 		if (evt.getSubject() instanceof Porpoise) {
 			var p = (Porpoise) evt.getSubject();
-			var pId = Long.valueOf(p.getId());
-			NdPoint pos = p.getPosition();
-
-			if (evt.getType() == Type.OBJECT_MOVED) {
-				Partition oldPartition = porpToPartitionMap.get(pId);
-				Partition newPartition = getPartitionForNdPoint(pos);
-				if (newPartition != oldPartition) {
-					if (oldPartition != null) {
-						oldPartition.remove(p);
+			var slot = slotOf(p);
+
+			if (evt.getType() == Type.OBJECT_MOVED || evt.getType() == Type.OBJECT_ADDED) {
+				NdPoint pos = p.getPosition();
+				int newCell = calculateCell(pos);
+				int newSub = calculateSub(newCell, pos);
+				if (slot == NONE) {
+					add(p, newCell, newSub);
+					adapt(newCell);
+				} else if (slotCell[slot] != newCell || slotSub[slot] != newSub) {
+					int oldCell = slotCell[slot];
+					unlink(slot);
+					link(slot, newCell, newSub);
+					if (oldCell != newCell) {
+						adapt(oldCell);
+						adapt(newCell);
 					}
-					newPartition.add(p);
-					this.porpToPartitionMap.put(pId, newPartition);
 				}
-			} else if (evt.getType() == Type.OBJECT_ADDED) {
-				Partition newPartition = getPartitionForNdPoint(pos);
-				newPartition.add(p);
-				this.porpToPartitionMap.put(pId, newPartition);
 			} else if (evt.getType() == Type.OBJECT_REMOVED) {
-				var oldPartition = this.porpToPartitionMap.get(pId);
-				if (oldPartition != null) {
-					oldPartition.remove(p);
+				if (slot != NONE) {
+					int oldCell = slotCell[slot];
+					remove(slot);
+					adapt(oldCell);
 				}
 			}
 		}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.landscape;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import dk.au.bios.porpoise.Globals;
+import dk.au.bios.porpoise.Hydrophone;
+import dk.au.bios.porpoise.SimulationConstants;
+import repast.simphony.space.continuous.NdPoint;
+
+/**
+ * The hydrophones of the landscape, kept apart from the context so ships can look up the hydrophones near them. The
+ * hydrophones do not move, so their positions are stored sorted on the x coordinate and the hydrophones within a
+ * distance are found by a binary search on x. In a periodic space all hydrophones are candidates.
+ */
+public class HydrophoneArray {
+
+	private final Hydrophone[] hydrophones;
+	private final double[] x;  // Grid coordinates, sorted on x
+	private final double[] y;
+
+	public HydrophoneArray(List<Hydrophone> hydrophones) {
+		final int[] order = IntStream.range(0, hydrophones.size()).boxed()
+				.sorted((a, b) -> Double.compare(hydrophones.get(a).getPosition().getX(),
+						hydrophones.get(b).getPosition().getX()))
+				.mapToInt(i -> i).toArray();
+		this.hydrophones = new Hydrophone[order.length];
+		this.x = new double[order.length];
+		this.y = new double[order.length];
+		for (int i = 0; i < order.length; i++) {
+			final Hydrophone h = hydrophones.get(order[i]);
+			this.hydrophones[i] = h;
+			this.x[i] = h.getPosition().getX();
+			this.y[i] = h.getPosition().getY();
+		}
+	}
+
+	public int size() {
+		return hydrophones.length;
+	}
+
+	public Hydrophone get(int i) {
+		return hydrophones[i];
+	}
+
+	public void resetSoundLevels() {
+		for (Hydrophone h : hydrophones) {
+			h.resetSoundLevel();
+		}
+	}
+
+	/**
+	 * Finds the hydrophones within a distance of a position, with their distance to it.
+	 *
+	 * @param pos The position, in grid coordinates
+	 * @param maxDistance The maximum distance in meters
+	 * @param batch Receives the hydrophones found, replacing its previous content
+	 */
+	public void findWithin(NdPoint pos, double maxDistance, Batch batch) {
+		batch.size = 0;
+		// The candidates are only narrowed down, the distance check below decides. The slack keeps rounding in the
+		// conversion to grid units from excluding a hydrophone exactly at the maximum distance.
+		final double reach = maxDistance / SimulationConstants.REQUIRED_CELL_SIZE + 1e-9;
+		final boolean periodic = Globals.getSpace().isPeriodic();
+		int from = 0;
+		int to = hydrophones.length;
+		if (!periodic) {
+			from = lowerBound(pos.getX() - reach);
+			to = lowerBound(Math.nextUp(pos.getX() + reach));
+		}
+
+		for (int i = from; i < to; i++) {
+			if (!periodic && Math.abs(y[i] - pos.getY()) > reach) {
+				continue;
+			}
+			final double distance = Globals.convertGridDistanceToUtm(pos, hydrophones[i].getPosition());
+			if (distance <= maxDistance) {
+				batch.add(hydrophones[i], distance);
+			}
+		}
+	}
+
+	/**
+	 * @return The index of the first hydrophone with an x coordinate not less than the value
+	 */
+	private int lowerBound(double value) {
+		int low = 0;
+		int high = x.length;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (x[mid] < value) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * The hydrophones found near a position, reused between lookups.
+	 */
+	public static class Batch {
+		private Hydrophone[] hydrophones = new Hydrophone[16];
+		private double[] distances = new double[16];
+		private int size = 0;
+
+		private void add(Hydrophone hydrophone, double distance) {
+			if (size == hydrophones.length) {
+				hydrophones = Arrays.copyOf(hydrophones, size * 2);
+				distances = Arrays.copyOf(distances, size * 2);
+			}
+			hydrophones[size] = hydrophone;
+			distances[size] = distance;
+			size++;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public Hydrophone getHydrophone(int i) {
+			return hydrophones[i];
+		}
+
+		/**
+		 * @return The distance to the hydrophone in meters
+		 */
+		public double getDistance(int i) {
+			return distances[i];
+		}
+	}
+
+}
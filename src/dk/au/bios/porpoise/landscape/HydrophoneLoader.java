@@ -34,6 +34,8 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.zip.ZipFile;
 
 import com.fasterxml.jackson.core.JsonParseException;
@@ -49,26 +51,32 @@ public class HydrophoneLoader {
 
 	private static final String HYDROPHONES_FILE = "hydrophones.csv";
 
+	/**
+	 * Loads the hydrophones of the landscape into the context and into the hydrophone array of {@link Globals}.
+	 */
 	public static void load(final Context<Agent> context, final String landscape) throws IOException {
+		final List<Hydrophone> hydrophones = new ArrayList<>();
 
 		if (Files.exists(Paths.get("data", landscape, HYDROPHONES_FILE))) {
 			try (InputStream dataIS = new FileInputStream(Paths.get("data", landscape, HYDROPHONES_FILE).toFile())) {
-				loadFromStream(context, dataIS);
+				loadFromStream(context, dataIS, hydrophones);
 			}
 		} else if (Files.exists(Paths.get("data", landscape + ".zip"))) {
 			try (ZipFile zf = new ZipFile(Paths.get("data", landscape + ".zip").toFile())) {
 				var entry = zf.getEntry(HYDROPHONES_FILE);
 				if (entry != null) {
 					try (InputStream dataIS = zf.getInputStream(entry)) {
-						loadFromStream(context, dataIS);
+						loadFromStream(context, dataIS, hydrophones);
 					}
 				}
 			}
 		}
+
+		Globals.setHydrophones(new HydrophoneArray(hydrophones));
 	}
 
-	private static void loadFromStream(final Context<Agent> context, final InputStream source)
-			throws JsonParseException, JsonMappingException, IOException {
+	private static void loadFromStream(final Context<Agent> context, final InputStream source,
+			final List<Hydrophone> hydrophones) throws JsonParseException, JsonMappingException, IOException {
 
 		try (BufferedReader bIn = new BufferedReader(new InputStreamReader(source))) {
 			int numHydrophones = 0;
@@ -87,6 +95,7 @@ public class HydrophoneLoader {
 				Hydrophone h = new Hydrophone(numHydrophones, name);
 				context.add(h);
 				h.setPosition(new NdPoint(locX, locY));
+				hydrophones.add(h);
 			} while (true);
 		}
 	}
@@ -27,13 +27,65 @@
 
 package dk.au.bios.porpoise.ships;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import repast.simphony.parameter.IllegalParameterException;
 
+/**
+ * Ship source levels according to the JOMOPANS-ECHO model.
+ *
+ * The source level only depends on the vessel state (class, speed and length) and the band. Source levels are cached
+ * per vessel state and band, shared between all ships. For several bands, the band dependent part of the spectrum is
+ * cached per vessel class and band, leaving only the speed and length terms to compute per vessel state.
+ */
 public class JomopansEchoSPL {
 
+	/** The number of cached values before the cache is cleared. */
+	private static final int MAX_CACHED = 1 << 16;
+
+	private static final double L_REF = 300 / 3.28084;
+
+	private static final Map<SourceLevelKey, Double> SOURCE_LEVELS = new ConcurrentHashMap<>();
+	private static final Map<Integer, Double> BAND_TERMS = new ConcurrentHashMap<>();
+
 	public double calculate(VesselClass vesselClass, double speed, double length, int band) {
-		double decidecadeBandSourceLevel = calculateSourceLevel(vesselClass, speed, length, band);
-		return decidecadeBandSourceLevel;
+		if (SOURCE_LEVELS.size() >= MAX_CACHED) {
+			SOURCE_LEVELS.clear();
+		}
+		return SOURCE_LEVELS.computeIfAbsent(new SourceLevelKey(vesselClass, speed, length, band),
+				key -> calculateSourceLevel(vesselClass, speed, length, band));
+	}
+
+	/**
+	 * Calculates the source levels for several decidecade bands at once.
+	 *
+	 * @param vesselClass The vessel class
+	 * @param speed The speed of the vessel
+	 * @param length The length of the vessel
+	 * @param bands The decidecade bands
+	 * @param levels Receives the source level of each band, must be at least as long as bands
+	 */
+	public void calculate(VesselClass vesselClass, double speed, double length, int[] bands, double[] levels) {
+		if (speed == 0) {
+			for (int i = 0; i < bands.length; i++) {
+				levels[i] = 0.0d;
+			}
+			return;
+		}
+
+		final double vesselTerm = 60 * Math.log10(speed / lookupVC(vesselClass)) + 20 * Math.log10(length / L_REF);
+		for (int i = 0; i < bands.length; i++) {
+			levels[i] = bandTerm(vesselClass, bands[i]) + vesselTerm;
+		}
+	}
+
+	/**
+	 * @return The part of the decidecade band source level depending only on the vessel class and band.
+	 */
+	private double bandTerm(VesselClass vesselClass, int band) {
+		final int key = band * VesselClass.values().length + vesselClass.ordinal();
+		return BAND_TERMS.computeIfAbsent(key, k -> calculateSourceLevel(vesselClass, lookupVC(vesselClass), L_REF, band));
 	}
 
 	protected double calculateSourceLevel(VesselClass vesselClass, double speed, double length, int band) {
@@ -53,7 +105,7 @@ public class JomopansEchoSPL {
 		double J48 = lfHump ? 2 : 0;
 		double K48 = lfHump ? lookupDlo(vesselClass) : lookupDhi(vesselClass);
 		double L48 = lfHump ? 600 / D48: 480 / D48;
-		double C48 = 300 / 3.28084; // L_ref
+		double C48 = L_REF; // L_ref
 
 		double spSpectralDensity = I48 - 10 * (J48 + 2) * Math.log10(L48) + 5 * J48 * Math.log10(B48)
 				- 10 * Math.log10(Math.pow((1 - Math.pow((B48 / L48), (0.5 * (J48 + 2)))), 2) + Math.pow(K48, 2))
@@ -141,6 +193,39 @@ public class JomopansEchoSPL {
 		}
 	}
 
+	private static final class SourceLevelKey {
+		private final VesselClass vesselClass;
+		private final double speed;
+		private final double length;
+		private final int band;
+
+		private SourceLevelKey(VesselClass vesselClass, double speed, double length, int band) {
+			this.vesselClass = vesselClass;
+			this.speed = speed;
+			this.length = length;
+			this.band = band;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof SourceLevelKey)) {
+				return false;
+			}
+			final SourceLevelKey other = (SourceLevelKey) obj;
+			return vesselClass == other.vesselClass && Double.compare(speed, other.speed) == 0
+					&& Double.compare(length, other.length) == 0 && band == other.band;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = vesselClass.hashCode();
+			hash = 31 * hash + Double.hashCode(speed);
+			hash = 31 * hash + Double.hashCode(length);
+			hash = 31 * hash + band;
+			return hash;
+		}
+	}
+
 	private double lookupDhi(VesselClass vc) {
 		switch(vc) {
 		case CRUISE:
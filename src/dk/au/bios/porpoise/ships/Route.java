@@ -28,6 +28,7 @@
 package dk.au.bios.porpoise.ships;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
@@ -39,6 +40,8 @@ public class Route {
 
 	private String name;
 	private List<Buoy> route;
+	private RouteBuoys buoys;
+	private Supplier<RouteBuoys> loader;
 
 	@JsonCreator
 	public Route(@JsonProperty("name") String name, @JsonProperty("route") List<Buoy> route) {
@@ -46,6 +49,22 @@ public class Route {
 		this.route = route;
 	}
 
+	public Route(String name, RouteBuoys buoys) {
+		this.name = name;
+		this.buoys = buoys;
+	}
+
+	/**
+	 * Creates a route whose buoys are not kept in memory, but loaded each time they are requested.
+	 *
+	 * @param name The name of the route
+	 * @param loader Loads the buoys of the route
+	 */
+	public Route(String name, Supplier<RouteBuoys> loader) {
+		this.name = name;
+		this.loader = loader;
+	}
+
 	public String getName() {
 		return name;
 	}
@@ -55,11 +74,30 @@ public class Route {
 	}
 
 	public List<Buoy> getRoute() {
+		if (route == null) {
+			return getBuoys().asList();
+		}
 		return route;
 	}
 
 	public void setRoute(List<Buoy> route) {
 		this.route = route;
+		this.buoys = null;
+		this.loader = null;
+	}
+
+	/**
+	 * @return The buoys of the route in primitive arrays. The buoys of a lazily loaded route are read again on each
+	 *         call, so callers should hold on to them only as long as they need them.
+	 */
+	public RouteBuoys getBuoys() {
+		if (loader != null) {
+			return loader.get();
+		}
+		if (buoys == null) {
+			buoys = RouteBuoys.of(route);
+		}
+		return buoys;
 	}
 
 }
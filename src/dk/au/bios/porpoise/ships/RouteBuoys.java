@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.ships;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The buoys of a route stored in primitive arrays.
+ */
+public class RouteBuoys {
+
+	private final double[] x;
+	private final double[] y;
+	private final double[] speed;
+	private final int[] pause;
+
+	public RouteBuoys(double[] x, double[] y, double[] speed, int[] pause) {
+		if (y.length != x.length || speed.length != x.length || pause.length != x.length) {
+			throw new IllegalArgumentException("The buoy arrays must have the same length");
+		}
+		this.x = x;
+		this.y = y;
+		this.speed = speed;
+		this.pause = pause;
+	}
+
+	public static RouteBuoys of(List<Buoy> buoys) {
+		final int size = buoys.size();
+		final double[] x = new double[size];
+		final double[] y = new double[size];
+		final double[] speed = new double[size];
+		final int[] pause = new int[size];
+		for (int i = 0; i < size; i++) {
+			final Buoy buoy = buoys.get(i);
+			x[i] = buoy.getX();
+			y[i] = buoy.getY();
+			speed[i] = buoy.getSpeed();
+			pause[i] = buoy.getPause();
+		}
+		return new RouteBuoys(x, y, speed, pause);
+	}
+
+	public int size() {
+		return x.length;
+	}
+
+	public double getX(int i) {
+		return x[i];
+	}
+
+	public double getY(int i) {
+		return y[i];
+	}
+
+	public double getSpeed(int i) {
+		return speed[i];
+	}
+
+	public int getPause(int i) {
+		return pause[i];
+	}
+
+	/**
+	 * @return A read-only view of the buoys, creating the Buoy objects as they are accessed
+	 */
+	public List<Buoy> asList() {
+		return new AbstractList<Buoy>() {
+			@Override
+			public Buoy get(int i) {
+				return new Buoy(x[i], y[i], speed[i], pause[i]);
+			}
+
+			@Override
+			public int size() {
+				return x.length;
+			}
+		};
+	}
+
+	/**
+	 * Collects buoys into primitive arrays while they are read.
+	 */
+	static class Builder {
+		private double[] x = new double[16];
+		private double[] y = new double[16];
+		private double[] speed = new double[16];
+		private int[] pause = new int[16];
+		private int size = 0;
+
+		void add(double x, double y, double speed, int pause) {
+			if (size == this.x.length) {
+				final int newCapacity = size * 2;
+				this.x = Arrays.copyOf(this.x, newCapacity);
+				this.y = Arrays.copyOf(this.y, newCapacity);
+				this.speed = Arrays.copyOf(this.speed, newCapacity);
+				this.pause = Arrays.copyOf(this.pause, newCapacity);
+			}
+			this.x[size] = x;
+			this.y[size] = y;
+			this.speed[size] = speed;
+			this.pause[size] = pause;
+			size++;
+		}
+
+		RouteBuoys build() {
+			return new RouteBuoys(Arrays.copyOf(x, size), Arrays.copyOf(y, size), Arrays.copyOf(speed, size),
+					Arrays.copyOf(pause, size));
+		}
+	}
+
+}
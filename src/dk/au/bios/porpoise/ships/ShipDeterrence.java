@@ -29,86 +29,101 @@ package dk.au.bios.porpoise.ships;
 
 import dk.au.bios.porpoise.Ship;
 
+/**
+ * The ship deterrence of a porpoise during a tick. For each sub-step of the tick the loudest ship is kept.
+ *
+ * The steps are held in primitive arrays, with a bit per recorded step. Porpoises without ship contact in a tick
+ * only pay for checking {@link #isDirty()}. The totals are aggregated in a single pass when first requested.
+ */
 public class ShipDeterrence {
 
-	private static class Step {
-		public Ship ship;
-		public double deterX;
-		public double deterY;
-		public double mag;
-		public double receivedLevelVHF;
-	}
+	/** The number of sub-steps per tick. */
+	public static final int STEPS = 30;
+
+	private final long[] shipId = new long[STEPS];
+	private final double[] deterX = new double[STEPS];
+	private final double[] deterY = new double[STEPS];
+	private final double[] mag = new double[STEPS];
+	private final double[] receivedLevelVHF = new double[STEPS];
 
-	private Step[] deterSteps = new Step[30];
+	/** Bit i is set if step i has been recorded since the last reset. */
+	private int recordedSteps = 0;
+
+	private boolean aggregated = false;
+	private double totalDeterX;
+	private double totalDeterY;
+	private double loudestShipSPL;
 
 	public void recordStep(int step, Ship ship, double deterX, double deterY, double mag, double receivedLevelVHF) {
-		var ds = new Step();
-		ds.ship = ship;
-		ds.deterX = deterX;
-		ds.deterY = deterY;
-		ds.mag = mag;
-		ds.receivedLevelVHF = receivedLevelVHF;
-
-		if (deterSteps[step] == null) {
-			deterSteps[step] = ds;
-		} else if (deterSteps[step].receivedLevelVHF < receivedLevelVHF) {
-			deterSteps[step] = ds;
+		final int bit = 1 << step;
+		final long id = ship.getId();
+
+		// The loudest ship wins, ties are broken by the ship id so the result does not depend on the order of ships
+		if ((recordedSteps & bit) == 0 || this.receivedLevelVHF[step] < receivedLevelVHF
+				|| (this.receivedLevelVHF[step] == receivedLevelVHF && id < shipId[step])) {
+			shipId[step] = id;
+			this.deterX[step] = deterX;
+			this.deterY[step] = deterY;
+			this.mag[step] = mag;
+			this.receivedLevelVHF[step] = receivedLevelVHF;
+			recordedSteps |= bit;
+			aggregated = false;
 		}
 	}
-	
+
+	/**
+	 * @return True if any step has been recorded since the last reset.
+	 */
+	public boolean isDirty() {
+		return recordedSteps != 0;
+	}
+
 	public void resetSteps() {
-		for (int i = 0; i < deterSteps.length; i++) {
-			deterSteps[i] = null;
-		}
+		recordedSteps = 0;
+		aggregated = false;
 	}
 
-	public double deterrenceStrength() {
-		double deterX = 0.0d;
-		double deterY = 0.0d;
-		for (Step ds : deterSteps) {
-			if (ds != null) {
-				deterX += ds.deterX;
-				deterY += ds.deterY;
+	private void aggregate() {
+		if (aggregated) {
+			return;
+		}
+
+		double sumX = 0.0d;
+		double sumY = 0.0d;
+		double loudest = 0.0d;
+		for (int steps = recordedSteps; steps != 0; steps &= steps - 1) {
+			final int step = Integer.numberOfTrailingZeros(steps);
+			sumX += deterX[step];
+			sumY += deterY[step];
+			if (receivedLevelVHF[step] > loudest) {
+				loudest = receivedLevelVHF[step];
 			}
 		}
 
-		var strength = Math.sqrt(Math.pow(deterX, 2) + Math.pow(deterY, 2));
-		return strength;
+		totalDeterX = sumX;
+		totalDeterY = sumY;
+		loudestShipSPL = loudest;
+		aggregated = true;
+	}
+
+	public double deterrenceStrength() {
+		aggregate();
+		return Math.sqrt(totalDeterX * totalDeterX + totalDeterY * totalDeterY);
 	}
 
 	public double deterrenceVtX() {
-		double deterX = 0.0d;
-		for (Step ds : deterSteps) {
-			if (ds != null) {
-				deterX += ds.deterX;
-			}
-		}
-		
-		return deterX;
+		aggregate();
+		return totalDeterX;
 	}
 
 	public double deterrenceVtY() {
-		double deterY = 0.0d;
-		for (Step ds : deterSteps) {
-			if (ds != null) {
-				deterY += ds.deterY;
-			}
-		}
-		
-		return deterY;
+		aggregate();
+		return totalDeterY;
 	}
 
 	public double getLoudestShipSPL() {
-		double loudest = 0.0d;
-		for (Step ds : deterSteps) {
-			if (ds != null) {
-				if (ds.receivedLevelVHF > loudest) {
-					loudest = ds.receivedLevelVHF;
-				}
-			}
-		}
-
-		return loudest;
+		aggregate();
+		return loudestShipSPL;
 	}
 
 }
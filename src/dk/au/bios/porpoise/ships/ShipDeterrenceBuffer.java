@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.ships;
+
+import java.util.Arrays;
+
+import dk.au.bios.porpoise.Porpoise;
+import dk.au.bios.porpoise.Ship;
+
+/**
+ * The deterrence steps calculated by a single ship during a tick, held back until they are applied to the porpoises.
+ * This allows the ships to calculate their deterrence concurrently, each writing only to its own buffer.
+ */
+public class ShipDeterrenceBuffer {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private Porpoise[] porpoises = new Porpoise[INITIAL_CAPACITY];
+	private int[] steps = new int[INITIAL_CAPACITY];
+	private double[] deterX = new double[INITIAL_CAPACITY];
+	private double[] deterY = new double[INITIAL_CAPACITY];
+	private double[] mag = new double[INITIAL_CAPACITY];
+	private double[] receivedLevelVHF = new double[INITIAL_CAPACITY];
+	private int size = 0;
+
+	public void add(Porpoise p, int step, double deterX, double deterY, double mag, double receivedLevelVHF) {
+		if (size == porpoises.length) {
+			final int newCapacity = size * 2;
+			porpoises = Arrays.copyOf(porpoises, newCapacity);
+			steps = Arrays.copyOf(steps, newCapacity);
+			this.deterX = Arrays.copyOf(this.deterX, newCapacity);
+			this.deterY = Arrays.copyOf(this.deterY, newCapacity);
+			this.mag = Arrays.copyOf(this.mag, newCapacity);
+			this.receivedLevelVHF = Arrays.copyOf(this.receivedLevelVHF, newCapacity);
+		}
+
+		porpoises[size] = p;
+		steps[size] = step;
+		this.deterX[size] = deterX;
+		this.deterY[size] = deterY;
+		this.mag[size] = mag;
+		this.receivedLevelVHF[size] = receivedLevelVHF;
+		size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Records the buffered steps on the porpoises and clears the buffer.
+	 *
+	 * @param ship The ship the steps were calculated for
+	 */
+	public void applyTo(Ship ship) {
+		for (int i = 0; i < size; i++) {
+			porpoises[i].deterShipStep(steps[i], ship, deterX[i], deterY[i], mag[i], receivedLevelVHF[i]);
+			porpoises[i] = null;
+		}
+		size = 0;
+	}
+
+}
@@ -31,14 +31,16 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.zip.ZipFile;
 
-import com.fasterxml.jackson.core.JsonParseException;
-import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import dk.au.bios.porpoise.Agent;
 import dk.au.bios.porpoise.Globals;
 import dk.au.bios.porpoise.SimulationConstants;
@@ -46,49 +48,113 @@ import repast.simphony.context.Context;
 
 public class ShipLoader {
 
-	public void load(final Context<Agent> context, final String landscape) throws IOException {
+	/**
+	 * Loads the ships of the landscape into the context. The ships are read from ships.bin if present (see
+	 * {@link ShipsBinaryFile}), otherwise from ships.json.
+	 *
+	 * @return The timeline of the loaded ships, which moves them while they are active
+	 */
+	public ShipTimeline load(final Context<Agent> context, final String landscape) throws IOException {
 
-		if (Files.exists(Paths.get("data", landscape, "ships.json"))) {
+		final Path binaryFile = Paths.get("data", landscape, ShipsBinaryFile.FILE_NAME);
+		if (Files.exists(binaryFile)) {
+			final Loader loader = new Loader(true);
+			ShipsBinaryFile.read(binaryFile, loader);
+			return loader.addTo(context);
+		} else if (Files.exists(Paths.get("data", landscape, "ships.json"))) {
 			try (InputStream dataIS = new FileInputStream(Paths.get("data", landscape, "ships.json").toFile())) {
-				loadFromStream(context, dataIS);
+				return loadFromStream(context, dataIS);
 			}
 		} else if (Files.exists(Paths.get("data", landscape + ".zip"))) {
 			try (ZipFile zf = new ZipFile(Paths.get("data", landscape + ".zip").toFile());
 					InputStream dataIS = zf.getInputStream(zf.getEntry("ships.json"))) {
-				loadFromStream(context, dataIS);
+				return loadFromStream(context, dataIS);
 			}
 		} else {
 			throw new IOException("File ships.json does not exist for landscape " + landscape);
 		}
 	}
 
-	private void loadFromStream(final Context<Agent> context, final InputStream source)
-			throws JsonParseException, JsonMappingException, IOException {
-		ObjectMapper objMapper = new ObjectMapper();
+	private ShipTimeline loadFromStream(final Context<Agent> context, final InputStream source) throws IOException {
+		final Loader loader = new Loader(false);
+		ShipsJsonReader.read(source, loader);
+		return loader.addTo(context);
+	}
+
+	/**
+	 * Collects the routes and ships as they are read. The routes are resolved when all have been read.
+	 */
+	private static class Loader implements ShipsDataHandler {
+
+		private final boolean lazyRoutes;
+		private final Map<String, Route> routes = new HashMap<>();
+		private final List<dk.au.bios.porpoise.Ship> ships = new ArrayList<>();
+		private final List<String> shipRoutes = new ArrayList<>();
+
+		/**
+		 * @param lazyRoutes Whether the routes are loaded on demand, in which case the ships only keep their route
+		 *            while active
+		 */
+		private Loader(boolean lazyRoutes) {
+			this.lazyRoutes = lazyRoutes;
+		}
+
+		@Override
+		public void route(final Route route) {
+			routes.put(route.getName(), route);
+		}
 
-		ShipsData shipsData = objMapper.readValue(source, ShipsData.class);
+		@Override
+		public void ship(final String name, final VesselClass type, final double length, final String routeName,
+				final int tickStart, final int tickEnd) throws IOException {
+			if (type == null) {
+				throw new IOException("Ship " + name + " has a missing or unknown type");
+			}
+			ships.add(new dk.au.bios.porpoise.Ship(name, type, length, null, tickStart, tickEnd));
+			shipRoutes.add(routeName);
+		}
 
-		for (Ship s : shipsData.getShips()) {
-			dk.au.bios.porpoise.Ship agent = (dk.au.bios.porpoise.Ship) s;
+		private ShipTimeline addTo(final Context<Agent> context) throws IOException {
+			final Set<String> verifiedRoutes = new HashSet<>();
+			for (int i = 0; i < ships.size(); i++) {
+				final dk.au.bios.porpoise.Ship agent = ships.get(i);
+				final Route route = routes.get(shipRoutes.get(i));
+				if (route == null) {
+					throw new IOException("Ship " + agent.getName() + " refers to unknown route " + shipRoutes.get(i));
+				}
+				agent.setRoute(route);
+				agent.setRandomStreamIndex(i);
 
-			verifyRoute(agent);
+				if (verifiedRoutes.add(route.getName())) {
+					verifyRoute(agent);
+				}
 
-			context.add(agent);
-			agent.initialize();
+				context.add(agent);
+				agent.initialize();
+				if (lazyRoutes) {
+					agent.releaseRoute();
+				}
+			}
+
+			return new ShipTimeline(ships);
 		}
+
 	}
 
-	private void verifyRoute(dk.au.bios.porpoise.Ship agent) {
+	private static void verifyRoute(dk.au.bios.porpoise.Ship agent) {
 		var minX = Globals.getXllCorner();
 		var maxX = Globals.getXllCorner() + (Globals.getWorldWidth() * SimulationConstants.REQUIRED_CELL_SIZE);
 		var minY = Globals.getYllCorner();
 		var maxY = Globals.getYllCorner() + (Globals.getWorldHeight() * SimulationConstants.REQUIRED_CELL_SIZE);
 
-		var buoysOutsideLandscape = agent.getRoute().getRoute().stream()
-				.filter(b -> b.getX() < minX || b.getX() >= maxX || b.getY() < minY || b.getY() >= maxY)
-				.collect(Collectors.toList());
-		if (!buoysOutsideLandscape.isEmpty()) {
-			throw new RuntimeException("Ship " + agent.getName() + " has one or more coordinates outside the landscape");
+		final RouteBuoys buoys = agent.getRoute().getBuoys();
+		for (int i = 0; i < buoys.size(); i++) {
+			final double x = buoys.getX(i);
+			final double y = buoys.getY(i);
+			if (x < minX || x >= maxX || y < minY || y >= maxY) {
+				throw new RuntimeException(
+						"Ship " + agent.getName() + " has one or more coordinates outside the landscape");
+			}
 		}
 	}
 
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.ships;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import dk.au.bios.porpoise.Ship;
+
+/**
+ * The traffic of the ships loaded for a simulation. The ships are ordered by the tick they start sailing, so each tick
+ * only the ships starting are looked up and only the active ships are moved and considered for deterrence. This keeps
+ * the cost per tick proportional to the number of active ships rather than all ships, e.g. for AIS based scenarios
+ * with many short transits.
+ *
+ * The active ships are kept in load order, the order the ships would otherwise have been processed in.
+ */
+public class ShipTimeline {
+
+	private final Ship[] ships;
+	private final int[] startOrder;
+	private int nextStart = 0;
+
+	private final int[] active;
+	private int activeCount = 0;
+
+	/**
+	 * @param ships The ships in load order
+	 */
+	public ShipTimeline(List<Ship> ships) {
+		this.ships = ships.toArray(new Ship[0]);
+		this.startOrder = IntStream.range(0, this.ships.length).boxed()
+				.sorted(Comparator.comparingInt((Integer i) -> this.ships[i].getTickStart())).mapToInt(i -> i)
+				.toArray();
+		this.active = new int[this.ships.length];
+	}
+
+	/**
+	 * Activates the ships starting at this tick, moves the active ships and retires the ships which have ended. A ship
+	 * is retired the tick after its last tick, so it is still considered for deterrence with its final position. The
+	 * route data of retired ships is released.
+	 *
+	 * @param tick The current tick
+	 */
+	public void moveShips(double tick) {
+		while (nextStart < startOrder.length && ships[startOrder[nextStart]].getTickStart() <= tick) {
+			final int idx = startOrder[nextStart++];
+			if (ships[idx].getTickEnd() >= tick) {
+				activate(idx);
+			}
+		}
+
+		int kept = 0;
+		for (int i = 0; i < activeCount; i++) {
+			final Ship ship = ships[active[i]];
+			ship.move();
+			if (ship.getTickEnd() >= tick) {
+				active[kept++] = active[i];
+			} else {
+				ship.releaseRoute();
+			}
+		}
+		activeCount = kept;
+	}
+
+	private void activate(int idx) {
+		int pos = Arrays.binarySearch(active, 0, activeCount, idx);
+		if (pos >= 0) {
+			return;
+		}
+		pos = -pos - 1;
+		System.arraycopy(active, pos, active, pos + 1, activeCount - pos);
+		active[pos] = idx;
+		activeCount++;
+	}
+
+	public int getActiveCount() {
+		return activeCount;
+	}
+
+	public Ship getActiveShip(int i) {
+		return ships[active[i]];
+	}
+
+	public int size() {
+		return ships.length;
+	}
+
+}
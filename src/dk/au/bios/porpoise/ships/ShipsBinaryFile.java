@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.ships;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compact binary alternative to ships.json, for ship data too large to keep in memory. The buoys of each route are
+ * stored as a block, which is read only when the route is requested, see {@link Route#getBuoys()}.
+ *
+ * The file starts with a header (magic, version and the offset of the index), followed by the buoy blocks of the
+ * routes and finally the index of the routes and ships. A buoy is stored as x, y and speed (doubles) and pause (int).
+ *
+ * A ships.json file is converted by running this class with the input and output files as arguments.
+ */
+public final class ShipsBinaryFile {
+
+	public static final String FILE_NAME = "ships.bin";
+
+	private static final int MAGIC = 0x44534850;  // "DSHP"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 4 + 4 + 8;
+	private static final int BUOY_SIZE = 8 + 8 + 8 + 4;
+
+	private ShipsBinaryFile() {
+		// Utility class, prevent instances
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: ShipsBinaryFile <ships.json> <ships.bin>");
+			System.exit(1);
+		}
+		try (InputStream json = new FileInputStream(args[0])) {
+			convert(json, Paths.get(args[1]));
+		}
+	}
+
+	/**
+	 * Converts ships.json to the binary format. The routes are streamed to the output, only the ships are kept in
+	 * memory until the index is written.
+	 */
+	public static void convert(final InputStream json, final Path target) throws IOException {
+		try (Writer writer = new Writer(target)) {
+			ShipsJsonReader.read(json, writer);
+		}
+	}
+
+	/**
+	 * Reads the index of the file. The routes passed to the handler load their buoys from the file when requested.
+	 */
+	public static void read(final Path source, final ShipsDataHandler handler) throws IOException {
+		try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			readFully(channel, header, 0);
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				throw new IOException("Not a version " + VERSION + " ships file: " + source);
+			}
+			final long indexOffset = header.getLong();
+
+			channel.position(indexOffset);
+			final DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+			final int routeCount = in.readInt();
+			for (int i = 0; i < routeCount; i++) {
+				final String name = in.readUTF();
+				final int buoyCount = in.readInt();
+				final long offset = in.readLong();
+				handler.route(new Route(name, () -> readBuoys(source, offset, buoyCount)));
+			}
+			final int shipCount = in.readInt();
+			for (int i = 0; i < shipCount; i++) {
+				final String name = in.readUTF();
+				final String type = in.readUTF();
+				final double length = in.readDouble();
+				final String routeName = in.readUTF();
+				final int tickStart = in.readInt();
+				final int tickEnd = in.readInt();
+				handler.ship(name, type.isEmpty() ? null : VesselClass.valueOf(type), length, routeName, tickStart,
+						tickEnd);
+			}
+		}
+	}
+
+	private static RouteBuoys readBuoys(final Path source, final long offset, final int buoyCount) {
+		try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+			final ByteBuffer block = ByteBuffer.allocate(buoyCount * BUOY_SIZE);
+			readFully(channel, block, offset);
+			final double[] x = new double[buoyCount];
+			final double[] y = new double[buoyCount];
+			final double[] speed = new double[buoyCount];
+			final int[] pause = new int[buoyCount];
+			for (int i = 0; i < buoyCount; i++) {
+				x[i] = block.getDouble();
+				y[i] = block.getDouble();
+				speed[i] = block.getDouble();
+				pause[i] = block.getInt();
+			}
+			return new RouteBuoys(x, y, speed, pause);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error reading route from " + source, e);
+		}
+	}
+
+	private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long offset)
+			throws IOException {
+		long position = offset;
+		while (buffer.hasRemaining()) {
+			final int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new IOException("Unexpected end of ships file");
+			}
+			position += read;
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * Writes the routes as they are received, followed by the index when closed.
+	 */
+	public static class Writer implements ShipsDataHandler, Closeable {
+
+		private final Path target;
+		private final DataOutputStream out;
+		private long position = HEADER_SIZE;
+
+		private final List<String> routeNames = new ArrayList<>();
+		private final List<Integer> routeSizes = new ArrayList<>();
+		private final List<Long> routeOffsets = new ArrayList<>();
+		private final List<ShipEntry> ships = new ArrayList<>();
+
+		public Writer(final Path target) throws IOException {
+			this.target = target;
+			this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(target.toFile())));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(0L);  // The index offset, written when closed
+		}
+
+		@Override
+		public void route(final Route route) throws IOException {
+			final RouteBuoys buoys = route.getBuoys();
+			routeNames.add(route.getName());
+			routeSizes.add(buoys.size());
+			routeOffsets.add(position);
+			for (int i = 0; i < buoys.size(); i++) {
+				out.writeDouble(buoys.getX(i));
+				out.writeDouble(buoys.getY(i));
+				out.writeDouble(buoys.getSpeed(i));
+				out.writeInt(buoys.getPause(i));
+			}
+			position += (long) buoys.size() * BUOY_SIZE;
+		}
+
+		@Override
+		public void ship(final String name, final VesselClass type, final double length, final String routeName,
+				final int tickStart, final int tickEnd) throws IOException {
+			if (name == null || routeName == null) {
+				throw new IOException("Ship " + name + " has no name or route");
+			}
+			ships.add(new ShipEntry(name, type, length, routeName, tickStart, tickEnd));
+		}
+
+		@Override
+		public void close() throws IOException {
+			final long indexOffset = position;
+			try {
+				out.writeInt(routeNames.size());
+				for (int i = 0; i < routeNames.size(); i++) {
+					out.writeUTF(routeNames.get(i));
+					out.writeInt(routeSizes.get(i));
+					out.writeLong(routeOffsets.get(i));
+				}
+				out.writeInt(ships.size());
+				for (ShipEntry ship : ships) {
+					out.writeUTF(ship.name);
+					out.writeUTF(ship.type != null ? ship.type.name() : "");
+					out.writeDouble(ship.length);
+					out.writeUTF(ship.routeName);
+					out.writeInt(ship.tickStart);
+					out.writeInt(ship.tickEnd);
+				}
+			} finally {
+				out.close();
+			}
+
+			try (RandomAccessFile file = new RandomAccessFile(target.toFile(), "rw")) {
+				file.seek(8);
+				file.writeLong(indexOffset);
+			}
+		}
+
+	}
+
+	private static class ShipEntry {
+		private final String name;
+		private final VesselClass type;
+		private final double length;
+		private final String routeName;
+		private final int tickStart;
+		private final int tickEnd;
+
+		private ShipEntry(String name, VesselClass type, double length, String routeName, int tickStart,
+				int tickEnd) {
+			this.name = name;
+			this.type = type;
+			this.length = length;
+			this.routeName = routeName;
+			this.tickStart = tickStart;
+			this.tickEnd = tickEnd;
+		}
+	}
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.ships;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads ships.json with the Jackson streaming parser, passing each route and ship to a handler as it is read. Only one
+ * route is held by the reader at a time, and the buoys of a route are collected in primitive arrays. The format is the
+ * same as read through {@link ShipsData}; unknown properties are skipped.
+ */
+public final class ShipsJsonReader {
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private ShipsJsonReader() {
+		// Utility class, prevent instances
+	}
+
+	public static void read(final InputStream source, final ShipsDataHandler handler) throws IOException {
+		try (JsonParser parser = JSON_FACTORY.createParser(source)) {
+			expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				final String field = parser.getCurrentName();
+				final JsonToken value = parser.nextToken();
+				if ("routes".equals(field)) {
+					expect(parser, value, JsonToken.START_ARRAY);
+					while (parser.nextToken() != JsonToken.END_ARRAY) {
+						handler.route(readRoute(parser));
+					}
+				} else if ("ships".equals(field)) {
+					expect(parser, value, JsonToken.START_ARRAY);
+					while (parser.nextToken() != JsonToken.END_ARRAY) {
+						readShip(parser, handler);
+					}
+				} else {
+					parser.skipChildren();
+				}
+			}
+		}
+	}
+
+	private static Route readRoute(final JsonParser parser) throws IOException {
+		expect(parser, parser.currentToken(), JsonToken.START_OBJECT);
+		String name = null;
+		final RouteBuoys.Builder buoys = new RouteBuoys.Builder();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			final String field = parser.getCurrentName();
+			final JsonToken value = parser.nextToken();
+			if ("name".equals(field)) {
+				name = parser.getValueAsString();
+			} else if ("route".equals(field)) {
+				expect(parser, value, JsonToken.START_ARRAY);
+				while (parser.nextToken() != JsonToken.END_ARRAY) {
+					readBuoy(parser, buoys);
+				}
+			} else {
+				parser.skipChildren();
+			}
+		}
+		return new Route(name, buoys.build());
+	}
+
+	private static void readBuoy(final JsonParser parser, final RouteBuoys.Builder buoys) throws IOException {
+		expect(parser, parser.currentToken(), JsonToken.START_OBJECT);
+		double x = 0.0d;
+		double y = 0.0d;
+		double speed = 0.0d;
+		int pause = 0;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			final String field = parser.getCurrentName();
+			parser.nextToken();
+			switch (field) {
+			case "x":
+				x = parser.getValueAsDouble();
+				break;
+			case "y":
+				y = parser.getValueAsDouble();
+				break;
+			case "speed":
+				speed = parser.getValueAsDouble();
+				break;
+			case "pause":
+				pause = parser.getValueAsInt();
+				break;
+			default:
+				parser.skipChildren();
+			}
+		}
+		buoys.add(x, y, speed, pause);
+	}
+
+	private static void readShip(final JsonParser parser, final ShipsDataHandler handler) throws IOException {
+		expect(parser, parser.currentToken(), JsonToken.START_OBJECT);
+		String name = null;
+		VesselClass type = null;
+		double length = 0.0d;
+		String routeName = null;
+		int tickStart = -1;
+		int tickEnd = Integer.MAX_VALUE;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			final String field = parser.getCurrentName();
+			final JsonToken value = parser.nextToken();
+			switch (field) {
+			case "name":
+				name = parser.getValueAsString();
+				break;
+			case "type":
+				type = VesselClass.forValue(parser.getValueAsString());
+				break;
+			case "length":
+				length = parser.getValueAsDouble();
+				break;
+			case "route":
+				expect(parser, value, JsonToken.VALUE_STRING);
+				routeName = parser.getValueAsString();
+				break;
+			case "tickStart":
+				tickStart = parser.getValueAsInt();
+				break;
+			case "tickEnd":
+				tickEnd = parser.getValueAsInt();
+				break;
+			default:
+				parser.skipChildren();
+			}
+		}
+		handler.ship(name, type, length, routeName, tickStart, tickEnd);
+	}
+
+	private static void expect(final JsonParser parser, final JsonToken actual, final JsonToken expected)
+			throws JsonParseException {
+		if (actual != expected) {
+			throw new JsonParseException(parser, "Expected " + expected + " but found " + actual);
+		}
+	}
+
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.ships;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.math3.special.Erf;
+
+/**
+ * Cache of the Weston flux propagation loss.
+ *
+ * The terms of the Weston flux model which only depend on the source (depth, grain size, temperature and salinity)
+ * are precomputed once per source, see {@link Source}. The propagation loss can then be written as
+ *
+ * PL(r) = 10 log10(r) + c + gamma * r + H(k * sqrt(r))
+ *
+ * where H(u) = -10 log10(erf(u) / u) is a smooth function shared by all sources. H is tabulated and evaluated by
+ * cubic Hermite interpolation, leaving a single log10 and sqrt per lookup. The interpolation error is below
+ * {@link #MAX_ERROR} dB.
+ */
+public final class TransmissionLossTable {
+
+	/** Upper bound on the difference (in dB) between the table and {@link WestonFlux#calcExact}. */
+	public static final double MAX_ERROR = 1e-6;
+
+	/** Above this, erf(u) is 1.0 in double precision. */
+	private static final double U_MAX = 6.0d;
+	private static final int STEPS = 1024;
+	private static final double STEP = U_MAX / STEPS;
+	private static final double TWO_OVER_SQRT_PI = 2.0d / Math.sqrt(Math.PI);
+
+	/** The number of sources cached before the cache is cleared. */
+	private static final int MAX_SOURCES = 1 << 16;
+
+	private static final double[] H = new double[STEPS + 1];
+	private static final double[] H_DERIVATIVE = new double[STEPS + 1];
+
+	private static final Map<SourceKey, Source> SOURCES = new ConcurrentHashMap<>();
+
+	static {
+		for (int i = 0; i <= STEPS; i++) {
+			final double u = i * STEP;
+			final double q;
+			final double qDerivative;
+			if (u < 1e-3) {
+				// Series expansion of erf(u) / u, avoiding cancellation near 0
+				final double u2 = u * u;
+				q = TWO_OVER_SQRT_PI * (1.0d - u2 / 3.0d + u2 * u2 / 10.0d);
+				qDerivative = TWO_OVER_SQRT_PI * (-2.0d * u / 3.0d + 2.0d * u2 * u / 5.0d);
+			} else {
+				final double erf = Erf.erf(u);
+				q = erf / u;
+				qDerivative = (TWO_OVER_SQRT_PI * Math.exp(-u * u) * u - erf) / (u * u);
+			}
+			H[i] = -10.0d * Math.log10(q);
+			H_DERIVATIVE[i] = -10.0d / Math.log(10.0d) * qDerivative / q;
+		}
+	}
+
+	private TransmissionLossTable() {
+		// Utility class, prevent instances.
+	}
+
+	/**
+	 * Gets the precomputed terms for a source, computing them on first use.
+	 *
+	 * @param depthAtSource The depth at the source
+	 * @param grainSize The grain size at the source
+	 * @param temp The water temperature
+	 * @param salinity The salinity at the source
+	 * @return The source
+	 */
+	public static Source getSource(double depthAtSource, double grainSize, double temp, double salinity) {
+		if (SOURCES.size() >= MAX_SOURCES) {
+			SOURCES.clear();
+		}
+		return SOURCES.computeIfAbsent(new SourceKey(depthAtSource, grainSize, temp, salinity),
+				key -> new Source(depthAtSource, grainSize, temp, salinity));
+	}
+
+	/**
+	 * @return H(u) = -10 log10(erf(u) / u), interpolated from the table. u must be in [0, U_MAX).
+	 */
+	private static double h(double u) {
+		final double pos = u / STEP;
+		final int i = Math.min((int) pos, STEPS - 1);
+		final double t = pos - i;
+		final double t2 = t * t;
+		final double t3 = t2 * t;
+		return (2 * t3 - 3 * t2 + 1) * H[i] + (t3 - 2 * t2 + t) * STEP * H_DERIVATIVE[i]
+				+ (-2 * t3 + 3 * t2) * H[i + 1] + (t3 - t2) * STEP * H_DERIVATIVE[i + 1];
+	}
+
+	/**
+	 * The Weston flux terms depending only on the source.
+	 */
+	public static final class Source {
+		private final double depthAtSource;
+		private final double beta;
+		private final double gamma;
+		private final double sspRatio;
+		private final double rhoRatio;
+
+		/** Scale of the erf argument, u = k * sqrt(r). */
+		private final double k;
+
+		/** Constant term when erf(u) is 1.0. */
+		private final double constant;
+
+		/** Constant term when erf(u) is tabulated. */
+		private final double constantNear;
+
+		/** True if the terms are not finite (e.g. zero depth), in which case the exact model is used. */
+		private final boolean exact;
+
+		private Source(double depthAtSource, double grainSize, double temp, double salinity) {
+			this.depthAtSource = depthAtSource;
+			this.sspRatio = WestonFlux.sspRatio(grainSize);
+			this.beta = WestonFlux.beta(grainSize, sspRatio);
+			this.gamma = WestonFlux.gamma(WestonFlux.FREQUENCY, temp, salinity, WestonFlux.PH, 0.0d);
+			this.rhoRatio = WestonFlux.rhoRatio(grainSize);
+
+			// As in WestonFlux.rangeIndependent
+			final double ssp = Math.max(sspRatio, 1.04d);
+			final double epsilon = Math.log(10.0d) / (40.0d * Math.PI) * beta;
+			final double eta = 2.0d * rhoRatio * (ssp / Math.pow(ssp * ssp - 1, 3.0d / 2.0d)) * epsilon;
+			final double thetaLimit = Math.acos(1 / ssp);
+
+			this.k = thetaLimit * Math.sqrt(eta / depthAtSource);
+			this.constant = -5.0d * Math.log10(Math.PI / (eta * depthAtSource));
+			this.constantNear = constant - 10.0d * Math.log10(k);
+			this.exact = !Double.isFinite(k) || !Double.isFinite(constantNear) || k <= 0.0d;
+		}
+
+		/**
+		 * Calculates the propagation loss at a distance from the source.
+		 *
+		 * @param r The distance in meters
+		 * @return The propagation loss in dB re 1m^2
+		 */
+		public double propagationLoss(double r) {
+			if (exact || !(r > 0.0d)) {
+				return WestonFlux.rangeIndependent(r, depthAtSource, WestonFlux.FREQUENCY,
+						WestonFlux.SPEED_IN_SEDIMENT, beta, gamma, sspRatio, rhoRatio);
+			}
+
+			final double u = k * Math.sqrt(r);
+			double pl;
+			if (u < U_MAX) {
+				pl = 10.0d * Math.log10(r) + constantNear + gamma * r + h(u);
+			} else {
+				pl = 15.0d * Math.log10(r) + constant + gamma * r;
+			}
+
+			return pl < 0.0d ? 0.0d : pl;
+		}
+	}
+
+	private static final class SourceKey {
+		private final double depthAtSource;
+		private final double grainSize;
+		private final double temp;
+		private final double salinity;
+
+		private SourceKey(double depthAtSource, double grainSize, double temp, double salinity) {
+			this.depthAtSource = depthAtSource;
+			this.grainSize = grainSize;
+			this.temp = temp;
+			this.salinity = salinity;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof SourceKey)) {
+				return false;
+			}
+			final SourceKey other = (SourceKey) obj;
+			return Double.compare(depthAtSource, other.depthAtSource) == 0
+					&& Double.compare(grainSize, other.grainSize) == 0 && Double.compare(temp, other.temp) == 0
+					&& Double.compare(salinity, other.salinity) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = Double.hashCode(depthAtSource);
+			hash = 31 * hash + Double.hashCode(grainSize);
+			hash = 31 * hash + Double.hashCode(temp);
+			hash = 31 * hash + Double.hashCode(salinity);
+			return hash;
+		}
+	}
+
+}
@@ -32,10 +32,21 @@ import org.apache.commons.math3.special.Erf;
 public class WestonFlux {
 
 	public static final double FREQUENCY = Math.pow(10,(12.0d/10.0d))*1000.0d; // 15848.93d; // 15848.9d;
-	private static final double SPEED_IN_SEDIMENT = 1700.0d; // (c_s) Sound speed in sediment (1700 m/s)
-	private static final double PH = 8.0d; // ph<-8 # Ph
+	static final double SPEED_IN_SEDIMENT = 1700.0d; // (c_s) Sound speed in sediment (1700 m/s)
+	static final double PH = 8.0d; // ph<-8 # Ph
 
+	/**
+	 * Calculates the propagation loss using the cached source terms in {@link TransmissionLossTable}. The result is
+	 * within {@link TransmissionLossTable#MAX_ERROR} of {@link #calcExact}.
+	 */
 	public static double calc(double distInMeters, double depthAtSource, double grainSize, double temp, double salinity) {
+		return TransmissionLossTable.getSource(depthAtSource, grainSize, temp, salinity).propagationLoss(distInMeters);
+	}
+
+	/**
+	 * Calculates the propagation loss directly from the Weston flux model.
+	 */
+	public static double calcExact(double distInMeters, double depthAtSource, double grainSize, double temp, double salinity) {
 		double sspRatioHigh = sspRatio(grainSize);
 		double beta = beta(grainSize, sspRatioHigh);
 		double gamma = gamma(FREQUENCY, temp, salinity, PH, 0.0d);
@@ -27,11 +27,10 @@
 
 package dk.au.bios.porpoise.tasks;
 
-import java.util.LinkedList;
-
 import repast.simphony.context.Context;
 import repast.simphony.engine.schedule.IAction;
 import dk.au.bios.porpoise.Agent;
+import dk.au.bios.porpoise.AgentRegistry;
 import dk.au.bios.porpoise.Porpoise;
 
 /**
@@ -53,11 +52,10 @@ public class DailyTask implements IAction {
 		// The porpoise can die and will then dissapear from the context, that will cause an
 		// java.util.ConcurrentModificationException if we iterate the context.
 		// We therefore create a copy of the porpoises we want to visit.
-		final LinkedList<Porpoise> porpoises = new LinkedList<Porpoise>();
-		for (final Agent a : this.context.getObjects(Porpoise.class)) {
-			porpoises.add((Porpoise) a);
-		}
+		final Porpoise[] porpoises = AgentRegistry.forContext(context).getPorpoises().toArray(new Porpoise[0]);
 
+		// The daily steps are performed one porpoise at a time in context order. Dispersal, mortality and
+		// reproduction draw from the shared random generator, so this order decides the results.
 		for (final Porpoise p : porpoises) {
 			// Update daily average energy level and corresponding positions for porps and use it to start/stop
 			// dispersing
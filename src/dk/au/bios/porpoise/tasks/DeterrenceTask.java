@@ -27,11 +27,18 @@
 
 package dk.au.bios.porpoise.tasks;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import dk.au.bios.porpoise.Agent;
-import dk.au.bios.porpoise.Hydrophone;
+import dk.au.bios.porpoise.AgentRegistry;
+import dk.au.bios.porpoise.Globals;
 import dk.au.bios.porpoise.Porpoise;
+import dk.au.bios.porpoise.Ship;
+import dk.au.bios.porpoise.SimulationParameters;
 import dk.au.bios.porpoise.SoundSource;
 import dk.au.bios.porpoise.Turbine;
+import dk.au.bios.porpoise.ships.ShipTimeline;
 import repast.simphony.context.Context;
 import repast.simphony.engine.schedule.IAction;
 
@@ -41,34 +48,92 @@ import repast.simphony.engine.schedule.IAction;
 public class DeterrenceTask implements IAction {
 
 	private final Context<Agent> context;
+	private final ShipTimeline shipTimeline;
+	private final List<Ship> ships = new ArrayList<>();
 
 	public DeterrenceTask(final Context<Agent> context) {
+		this(context, null);
+	}
+
+	/**
+	 * @param context The simulation context
+	 * @param shipTimeline The ship timeline, only the ships active in it are considered. The other sound sources in
+	 *            the context are always considered. If null, all sound sources in the context are considered.
+	 */
+	public DeterrenceTask(final Context<Agent> context, final ShipTimeline shipTimeline) {
 		this.context = context;
+		this.shipTimeline = shipTimeline;
 	}
 
 	@Override
 	public void execute() {
-		for (final Agent a : this.context.getObjects(Porpoise.class)) {
-			((Porpoise) a).updateDeterence();
+		final AgentRegistry agents = AgentRegistry.forContext(context);
+
+		for (final Porpoise p : agents.getPorpoises()) {
+			p.updateDeterence();
 		}
 
 		resetHydrophones();
 
 		Turbine.activateTurbines(context);
 
-		for (final Agent a : this.context.getObjects(Turbine.class)) {
-			((Turbine) a).deterPorpoise();
+		for (final Turbine t : agents.getTurbines()) {
+			t.deterPorpoise();
 		}
-		for (final Agent a : this.context.getObjects(SoundSource.class)) {
-			((SoundSource) a).deterPorpoise();
+		final boolean parallelShips = SimulationParameters.isShipDeterrenceParallel();
+		if (shipTimeline != null) {
+			for (int i = 0; i < shipTimeline.getActiveCount(); i++) {
+				final Ship ship = shipTimeline.getActiveShip(i);
+				if (parallelShips) {
+					ships.add(ship);
+				} else {
+					ship.deterPorpoise();
+				}
+			}
+			// The other sound sources, e.g. those created by porpoises, are not in the timeline. They are added to the
+			// context after the ships, so they follow the ships as when iterating the context.
+			for (final SoundSource s : agents.getSoundSources()) {
+				if (!(s instanceof Ship)) {
+					s.deterPorpoise();
+				}
+			}
+		} else {
+			for (final SoundSource s : agents.getSoundSources()) {
+				if (parallelShips && s instanceof Ship) {
+					ships.add((Ship) s);
+				} else {
+					s.deterPorpoise();
+				}
+			}
 		}
+		deterPorpoisesByShips();
 
 		Turbine.deactiveTurbines(context);
 	}
 
+	/**
+	 * Calculates the ship deterrence concurrently, each ship into its own buffer. The buffers are then applied in the
+	 * order of the ships. The porpoises keep the loudest ship per sub-step, with ties broken by the ship id, so the
+	 * result does not depend on the number of threads.
+	 */
+	private void deterPorpoisesByShips() {
+		if (ships.isEmpty()) {
+			return;
+		}
+
+		Globals.getSimulationExecutor().parallelFor("ships", ships.size(), 1, (from, to) -> {
+			for (int i = from; i < to; i++) {
+				ships.get(i).calculateDeterrence();
+			}
+		});
+		for (final Ship ship : ships) {
+			ship.applyDeterrence();
+		}
+		ships.clear();
+	}
+
 	private void resetHydrophones() {
-		context.getObjectsAsStream(Hydrophone.class).filter(Hydrophone.class::isInstance).map(Hydrophone.class::cast)
-				.forEach(h -> h.resetSoundLevel());
+		Globals.getHydrophones().resetSoundLevels();
 	}
 
 }
@@ -27,12 +27,6 @@
 
 package dk.au.bios.porpoise.tasks;
 
-import java.util.LinkedList;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import repast.simphony.engine.schedule.IAction;
@@ -40,7 +34,6 @@ import dk.au.bios.porpoise.BackgroundAgent;
 import dk.au.bios.porpoise.Globals;
 import dk.au.bios.porpoise.SimulationConstants;
 import dk.au.bios.porpoise.SimulationParameters;
-import dk.au.bios.porpoise.util.DaemonThreadFactory;
 import dk.au.bios.porpoise.util.Pair;
 
 /**
@@ -48,7 +41,10 @@ import dk.au.bios.porpoise.util.Pair;
  */
 public class FoodTask implements IAction {
 
-	private static ExecutorService threadPool = Executors.newFixedThreadPool(8, new DaemonThreadFactory());
+	/**
+	 * The number of patches grown in each chunk of parallel work.
+	 */
+	private static final int CHUNK_SIZE = 4096;
 
 	/**
 	 * The number of patches where the food has been grown 47 times extra
@@ -77,7 +73,7 @@ public class FoodTask implements IAction {
 
 		// executeSingleThreadBruteForce(); // (0.30 seconds per day)
 		// executeSingleThreadOptimized(); // (0.22 seconds per day)
-		executeParallel(4096); // (0.23 seconds per day)
+		executeParallel(CHUNK_SIZE); // (0.23 seconds per day)
 	}
 
 	public void executeSingleThreadOptimized() {
@@ -161,84 +157,47 @@ public class FoodTask implements IAction {
 	}
 
 	private void executeParallel(final int chunkSize) {
-		// We have 4572 patches with foodProb > 0, break them into chunkSize point big jobs
+		// Break the patches with foodProb > 0 into chunkSize point big jobs
 		final Pair[] points = Globals.getCellData().getFoodProbAboveZeroPatches();
-		final LinkedList<Future<Double>> tasks = new LinkedList<>();
-
-		int from = 0;
-		int to = chunkSize;
-
-		while (from < points.length) {
-			if (to < points.length) {
-				tasks.add(threadPool.submit(new Task(points, from, to)));
-			} else {
-				tasks.add(threadPool.submit(new Task(points, from, points.length)));
-			}
-
-			from = to;
-			to += chunkSize;
-		}
-		
-		double grownFood = 0;
-		for (final Future<Double> f : tasks) {
-			try {
-				double grownFoodTask = f.get();
-				grownFood += grownFoodTask;
-			} catch (InterruptedException | ExecutionException e) {
-				e.printStackTrace();
-			}
-		}
+		final double grownFood = Globals.getSimulationExecutor().parallelReduce("food", points.length, chunkSize,
+				(from, to) -> growFood(points, from, to));
 
 		BackgroundAgent.setGrownFood(grownFood);
 	}
 
-	private class Task implements Callable<Double> {
-		// private CellData data;
-		private final Pair[] points;
-		private final int from;
-		private final int to;
-
-		Task(final Pair[] points, final int from, final int to) {
-			this.from = from;
-			this.to = to;
-			this.points = points;
-		}
-
-		@Override
-		public Double call() throws Exception {
-			double grownFood = 0;
+	private double growFood(final Pair[] points, final int from, final int to) {
+		double grownFood = 0;
 
-			for (int idx = from; idx < to; idx++) {
-				final int i = points[idx].getFirst();
-				final int j = points[idx].getSecond();
+		for (int idx = from; idx < to; idx++) {
+			final int i = points[idx].getFirst();
+			final int j = points[idx].getSecond();
 
-				if (!SimulationConstants.ADD_ARTIFICIAL_FOOD && foodLevel[i][j] < 0.01) {
-					foodLevel[i][j] = 0.01;
-				}
+			if (!SimulationConstants.ADD_ARTIFICIAL_FOOD && foodLevel[i][j] < 0.01) {
+				foodLevel[i][j] = 0.01;
+			}
 
-				if (foodLevel[i][j] < (SimulationParameters.getMaxU() * maxEnt[i][j])) {
-					double fLevel = foodLevel[i][j]
-							+ (SimulationParameters.getFoodGrowthRate() * foodLevel[i][j] * (1.0 - foodLevel[i][j]
-									/ (SimulationParameters.getMaxU() * maxEnt[i][j] / Globals
-											.getMeanMaxEntInCurrentQuarter())));
+			if (foodLevel[i][j] < (SimulationParameters.getMaxU() * maxEnt[i][j])) {
+				double fLevel = foodLevel[i][j]
+						+ (SimulationParameters.getFoodGrowthRate() * foodLevel[i][j] * (1.0 - foodLevel[i][j]
+								/ (SimulationParameters.getMaxU() * maxEnt[i][j] / Globals
+										.getMeanMaxEntInCurrentQuarter())));
 
-					if (Math.abs(fLevel - foodLevel[i][j]) > SimulationParameters.getRegrowthFoodQualifier()) {
-						for (int k = 0; k < 47; k++) {
-							fLevel += SimulationParameters.getFoodGrowthRate()
-									* fLevel
-									* (1 - fLevel
-											/ (SimulationParameters.getMaxU() * maxEnt[i][j] / Globals
-													.getMeanMaxEntInCurrentQuarter()));
-						}
-						extraGrowthCount.incrementAndGet();
+				if (Math.abs(fLevel - foodLevel[i][j]) > SimulationParameters.getRegrowthFoodQualifier()) {
+					for (int k = 0; k < 47; k++) {
+						fLevel += SimulationParameters.getFoodGrowthRate()
+								* fLevel
+								* (1 - fLevel
+										/ (SimulationParameters.getMaxU() * maxEnt[i][j] / Globals
+												.getMeanMaxEntInCurrentQuarter()));
 					}
-
-					grownFood += (fLevel - foodLevel[i][j]);
-					foodLevel[i][j] = fLevel;
+					extraGrowthCount.incrementAndGet();
 				}
+
+				grownFood += (fLevel - foodLevel[i][j]);
+				foodLevel[i][j] = fLevel;
 			}
-			return grownFood;
 		}
+		return grownFood;
 	}
 
 }
@@ -31,6 +31,7 @@ import java.text.DecimalFormat;
 
 import repast.simphony.engine.schedule.IAction;
 import dk.au.bios.porpoise.Globals;
+import dk.au.bios.porpoise.util.DebugLog;
 import dk.au.bios.porpoise.util.SimulationTime;
 
 /**
@@ -66,6 +67,10 @@ public class MonthlyTasks implements IAction {
 			System.out.println("y:" + year + " m: " + month + " q: " + quarter + " - " + simYears
 					+ " Years simulated in " + format.format(minutesForSimulation) + " minutes. "
 					+ format.format(minutesRemaining) + " minutes remaining of simulation.");
+			if (DebugLog.isEnabledFor(6)) {
+				DebugLog.print(Globals.getSimulationExecutor().getUtilisationReport());
+			}
+			Globals.getSimulationExecutor().resetUtilisation();
 		}
 	}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2017-2022 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
  *
  * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
  * License version 2 and only version 2 as published by the Free Software Foundation.
@@ -25,62 +25,57 @@
  * this exception also makes it possible to release a modified version which carries forward this exception.
  */
 
-package dk.au.bios.porpoise.agents.misc;
 
-import dk.au.bios.porpoise.Agent;
-import dk.au.bios.porpoise.Porpoise;
+package dk.au.bios.porpoise.tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import repast.simphony.engine.schedule.IAction;
+import dk.au.bios.porpoise.Globals;
 import dk.au.bios.porpoise.util.SimulationTime;
 
 /**
- * A special agent used for reporting statistics at the time of death. An
- * instance is created and added to the context at the time of death of a
- * porpoise. The logging is configured to output this to the Reproductive log at
- * every tick. The instances are then removed at the beginning of each tick by
- * the special DeadPorpoisesReportProxyCleanupTask. This is a bit of a special
- * construct, required by the event-based logging requirements, which doesn't
- * fit nicely into the Repast logging framework.
+ * Writes the porpoises that died during the tick to the Reproduction file. Scheduled last in every tick, it reports
+ * the deaths recorded in {@link Globals#getDeathEvents()}.
  */
-public class DeadPorpoiseReportProxy extends Agent {
-
-	private double tickAtDeath;
-	private long id;
-	private double ageAtDeath;
-	private int calvesBorn;
-	private int calvesWeaned;
-	private String longDistMovType;
+public class ReproductionReportTask implements IAction {
 
-	public DeadPorpoiseReportProxy(Porpoise porp) {
-		super(porp.getId());
+	private static final String DELIM = ";";
 
-		this.tickAtDeath = SimulationTime.getTick();
-		this.ageAtDeath = porp.getAge();
-		this.calvesBorn = porp.getCalvesBorn();
-		this.calvesWeaned = porp.getCalvesWeaned();
-		this.longDistMovType = porp.getDispersalBehaviour().getDispersalShortName();
-	}
-
-	public double getTickAtDeath() {
-		return tickAtDeath;
-	}
+	private PrintWriter reproductionOutput = null;
 
-	public long getId() {
-		return id;
+	public ReproductionReportTask() {
+		final SimpleDateFormat sdf = new SimpleDateFormat("yyyy.MMM.dd.HH_mm_ss_SS");
+		final File reproductionOutputFile = new File("Reproduction." + sdf.format(new Date()) + ".csv");
+		try {
+			reproductionOutput = new PrintWriter(reproductionOutputFile);
+			reproductionOutput.println("\"tick\";\"TickAtDeath\";\"AgeAtDeath\";\"CalvesBorn\";\"CalvesWeaned\";"
+					+ "\"LongDistMovType\"");
+		} catch (final IOException e) {
+			e.printStackTrace();
+		}
 	}
 
-	public double getAgeAtDeath() {
-		return ageAtDeath;
-	}
-
-	public int getCalvesBorn() {
-		return calvesBorn;
-	}
-
-	public int getCalvesWeaned() {
-		return calvesWeaned;
-	}
+	@Override
+	public void execute() {
+		if (Globals.getDeathEvents().size() == 0) {
+			return;
+		}
 
-	public String getLongDistMovType() {
-		return longDistMovType;
+		final double tick = SimulationTime.getTick();
+		Globals.getDeathEvents().drain((tickAtDeath, age, calvesBorn, calvesWeaned, dispersalType) -> {
+			if (reproductionOutput != null) {
+				reproductionOutput.println(tick + DELIM + tickAtDeath + DELIM + age + DELIM + calvesBorn + DELIM
+						+ calvesWeaned + DELIM + dispersalType);
+			}
+		});
+		if (reproductionOutput != null) {
+			reproductionOutput.flush();
+		}
 	}
 
 }
@@ -40,6 +40,7 @@ import repast.simphony.engine.environment.RunEnvironment;
 import repast.simphony.engine.environment.RunState;
 import repast.simphony.engine.schedule.IAction;
 import dk.au.bios.porpoise.Agent;
+import dk.au.bios.porpoise.AgentRegistry;
 import dk.au.bios.porpoise.Porpoise;
 import dk.au.bios.porpoise.SimulationParameters;
 import dk.au.bios.porpoise.util.SimulationTime;
@@ -94,8 +95,7 @@ public class YearlyTask implements IAction {
 			ageDistribution.put(i, 0);
 		}
 
-		for (final Agent a : this.context.getObjects(Porpoise.class)) {
-			final Porpoise p = (Porpoise) a;
+		for (final Porpoise p : AgentRegistry.forContext(context).getPorpoises()) {
 			p.setRandomMatingDay();
 
 			final int pAge = (int) Math.floor(p.getAge());
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.util;
+
+import java.util.Arrays;
+
+/**
+ * The porpoise deaths not yet reported, in the order they occurred.
+ *
+ * The events are kept in a ring buffer of parallel primitive arrays which grows when full, so recording a death does
+ * not allocate once the buffer has reached the size needed for the deaths of a tick.
+ */
+public final class DeathEventBuffer {
+
+	/**
+	 * Receives the events when the buffer is drained.
+	 */
+	@FunctionalInterface
+	public interface DeathEventConsumer {
+		void accept(double tick, double age, int calvesBorn, int calvesWeaned, String dispersalType);
+	}
+
+	private double[] ticks;
+	private double[] ages;
+	private int[] calvesBorn;
+	private int[] calvesWeaned;
+	private String[] dispersalTypes;
+	private int head = 0; // Index of the oldest event
+	private int size = 0;
+
+	public DeathEventBuffer() {
+		this(64);
+	}
+
+	/**
+	 * @param capacity The initial capacity, rounded up to a power of two.
+	 */
+	public DeathEventBuffer(final int capacity) {
+		final int n = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+		ticks = new double[n];
+		ages = new double[n];
+		calvesBorn = new int[n];
+		calvesWeaned = new int[n];
+		dispersalTypes = new String[n];
+	}
+
+	/**
+	 * Records the death of a porpoise.
+	 *
+	 * @param tick The tick of death
+	 * @param age The age at death
+	 * @param born The number of calves born
+	 * @param weaned The number of calves weaned
+	 * @param dispersalType The short name of the dispersal type
+	 */
+	public void add(final double tick, final double age, final int born, final int weaned,
+			final String dispersalType) {
+		if (size == ticks.length) {
+			grow();
+		}
+		final int i = (head + size) & (ticks.length - 1);
+		ticks[i] = tick;
+		ages[i] = age;
+		calvesBorn[i] = born;
+		calvesWeaned[i] = weaned;
+		dispersalTypes[i] = dispersalType;
+		size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Passes the events to the consumer, oldest first, and empties the buffer.
+	 *
+	 * @param consumer The consumer of the events
+	 */
+	public void drain(final DeathEventConsumer consumer) {
+		final int mask = ticks.length - 1;
+		while (size > 0) {
+			final int i = head;
+			consumer.accept(ticks[i], ages[i], calvesBorn[i], calvesWeaned[i], dispersalTypes[i]);
+			dispersalTypes[i] = null;
+			head = (head + 1) & mask;
+			size--;
+		}
+	}
+
+	private void grow() {
+		final int n = ticks.length;
+		// Unwrap the events so the oldest is first
+		ticks = unwrap(ticks, n * 2);
+		ages = unwrap(ages, n * 2);
+		calvesBorn = unwrap(calvesBorn, n * 2);
+		calvesWeaned = unwrap(calvesWeaned, n * 2);
+		dispersalTypes = unwrap(dispersalTypes, n * 2);
+		head = 0;
+	}
+
+	private double[] unwrap(final double[] a, final int length) {
+		final double[] result = Arrays.copyOfRange(a, head, head + length);
+		System.arraycopy(a, 0, result, a.length - head, head);
+		return result;
+	}
+
+	private int[] unwrap(final int[] a, final int length) {
+		final int[] result = Arrays.copyOfRange(a, head, head + length);
+		System.arraycopy(a, 0, result, a.length - head, head);
+		return result;
+	}
+
+	private String[] unwrap(final String[] a, final int length) {
+		final String[] result = Arrays.copyOfRange(a, head, head + length);
+		System.arraycopy(a, 0, result, a.length - head, head);
+		return result;
+	}
+
+}
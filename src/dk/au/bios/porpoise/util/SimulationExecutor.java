@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The executor used for all parallel work in the simulation.
+ *
+ * Work is split into fixed chunks determined only by the problem size and the chunk size, never by the number of
+ * threads. Partial results are combined in chunk order, so a run produces the same result regardless of the
+ * configured parallelism. With a parallelism of 1 all chunks are executed on the calling thread.
+ */
+public final class SimulationExecutor {
+
+	/**
+	 * Processes the index range [from, to).
+	 */
+	@FunctionalInterface
+	public interface RangeAction {
+		void apply(int from, int to);
+	}
+
+	/**
+	 * Processes the index range [from, to) and returns the partial result for the range.
+	 */
+	@FunctionalInterface
+	public interface RangeReducer {
+		double apply(int from, int to);
+	}
+
+	private final int parallelism;
+	private final ForkJoinPool pool;
+	private final Map<String, PhaseStats> phaseStats = new LinkedHashMap<>();
+
+	/**
+	 * Creates a new executor.
+	 *
+	 * @param parallelism The number of worker threads. Values below 1 use the number of available processors.
+	 */
+	public SimulationExecutor(final int parallelism) {
+		this.parallelism = parallelism < 1 ? Runtime.getRuntime().availableProcessors() : parallelism;
+
+		if (this.parallelism > 1) {
+			this.pool = new ForkJoinPool(this.parallelism, p -> {
+				final ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+				t.setDaemon(true);
+				t.setName("DEPONS-worker-" + t.getPoolIndex());
+				return t;
+			}, null, false);
+		} else {
+			this.pool = null;
+		}
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Executes the action for all indexes in [0, size), split into chunks of chunkSize indexes.
+	 *
+	 * @param phase Name of the simulation phase, used for the utilisation statistics.
+	 * @param size The number of indexes to process.
+	 * @param chunkSize The number of indexes in each chunk.
+	 * @param action The action processing a single chunk.
+	 */
+	public void parallelFor(final String phase, final int size, final int chunkSize, final RangeAction action) {
+		parallelReduce(phase, size, chunkSize, (from, to) -> {
+			action.apply(from, to);
+			return 0.0d;
+		});
+	}
+
+	/**
+	 * Executes the reducer for all indexes in [0, size), split into chunks of chunkSize indexes, and returns the sum
+	 * of the partial results. The partial results are summed in chunk order.
+	 *
+	 * @param phase Name of the simulation phase, used for the utilisation statistics.
+	 * @param size The number of indexes to process.
+	 * @param chunkSize The number of indexes in each chunk.
+	 * @param reducer The reducer processing a single chunk.
+	 * @return The sum of the partial results.
+	 */
+	public double parallelReduce(final String phase, final int size, final int chunkSize, final RangeReducer reducer) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+		}
+		if (size <= 0) {
+			return 0.0d;
+		}
+
+		final int chunks = (size + chunkSize - 1) / chunkSize;
+		final double[] partials = new double[chunks];
+		final AtomicLong busyNanos = new AtomicLong();
+		final long start = System.nanoTime();
+
+		if (pool == null || chunks == 1) {
+			for (int c = 0; c < chunks; c++) {
+				partials[c] = runChunk(c, size, chunkSize, reducer, busyNanos);
+			}
+		} else {
+			pool.invoke(new ChunkTask(0, chunks, size, chunkSize, reducer, partials, busyNanos));
+		}
+
+		final long wallNanos = System.nanoTime() - start;
+		recordPhase(phase, wallNanos, busyNanos.get(), pool == null || chunks == 1 ? 1 : parallelism);
+
+		double sum = 0.0d;
+		for (int c = 0; c < chunks; c++) {
+			sum += partials[c];
+		}
+		return sum;
+	}
+
+	private static double runChunk(final int chunk, final int size, final int chunkSize, final RangeReducer reducer,
+			final AtomicLong busyNanos) {
+		final int from = chunk * chunkSize;
+		final int to = Math.min(from + chunkSize, size);
+		final long start = System.nanoTime();
+		final double result = reducer.apply(from, to);
+		busyNanos.addAndGet(System.nanoTime() - start);
+		return result;
+	}
+
+	private synchronized void recordPhase(final String phase, final long wallNanos, final long busyNanos,
+			final int workers) {
+		phaseStats.computeIfAbsent(phase, k -> new PhaseStats()).add(wallNanos, busyNanos, workers);
+	}
+
+	/**
+	 * Returns a summary of the utilisation of each phase since the last reset.
+	 *
+	 * @return One line per phase with the number of invocations, wall time and utilisation of the workers.
+	 */
+	public synchronized String getUtilisationReport() {
+		final StringBuilder sb = new StringBuilder();
+		for (final Map.Entry<String, PhaseStats> e : phaseStats.entrySet()) {
+			final PhaseStats s = e.getValue();
+			sb.append(String.format("%s: %d invocations, %.3f s wall, %.1f%% utilisation%n", e.getKey(),
+					s.invocations, s.wallNanos / 1e9, s.getUtilisation() * 100.0d));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the utilisation of the phase, i.e. the time spent processing chunks relative to the worker time
+	 * available while the phase was running.
+	 *
+	 * @param phase Name of the simulation phase.
+	 * @return The utilisation (between 0 and 1), or 0 if the phase has not been executed.
+	 */
+	public synchronized double getUtilisation(final String phase) {
+		final PhaseStats s = phaseStats.get(phase);
+		return s != null ? s.getUtilisation() : 0.0d;
+	}
+
+	public synchronized void resetUtilisation() {
+		phaseStats.clear();
+	}
+
+	/**
+	 * Stops the worker threads. The executor must not be used afterwards.
+	 */
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+
+	private static class PhaseStats {
+		private long invocations;
+		private long wallNanos;
+		private long busyNanos;
+		private long availableNanos;
+
+		void add(final long wall, final long busy, final int workers) {
+			invocations++;
+			wallNanos += wall;
+			busyNanos += busy;
+			availableNanos += wall * workers;
+		}
+
+		double getUtilisation() {
+			return availableNanos > 0 ? Math.min(1.0d, busyNanos / (double) availableNanos) : 0.0d;
+		}
+	}
+
+	/**
+	 * Splits the chunk range in halves until a single chunk remains, letting idle workers steal the other half.
+	 */
+	private static class ChunkTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int fromChunk;
+		private final int toChunk;
+		private final int size;
+		private final int chunkSize;
+		private final RangeReducer reducer;
+		private final double[] partials;
+		private final AtomicLong busyNanos;
+
+		ChunkTask(final int fromChunk, final int toChunk, final int size, final int chunkSize,
+				final RangeReducer reducer, final double[] partials, final AtomicLong busyNanos) {
+			this.fromChunk = fromChunk;
+			this.toChunk = toChunk;
+			this.size = size;
+			this.chunkSize = chunkSize;
+			this.reducer = reducer;
+			this.partials = partials;
+			this.busyNanos = busyNanos;
+		}
+
+		@Override
+		protected void compute() {
+			if (toChunk - fromChunk == 1) {
+				partials[fromChunk] = runChunk(fromChunk, size, chunkSize, reducer, busyNanos);
+			} else {
+				final int mid = (fromChunk + toChunk) >>> 1;
+				invokeAll(new ChunkTask(fromChunk, mid, size, chunkSize, reducer, partials, busyNanos),
+						new ChunkTask(mid, toChunk, size, chunkSize, reducer, partials, busyNanos));
+			}
+		}
+	}
+
+}
@@ -30,6 +30,7 @@ package dk.au.bios.porpoise;
 import static org.mockito.Mockito.mock;
 
 import java.io.File;
+import java.util.List;
 import java.util.stream.Stream;
 
 import dk.au.bios.porpoise.behavior.DispersalFactory;
@@ -39,7 +40,10 @@ import dk.au.bios.porpoise.landscape.CellData;
 import dk.au.bios.porpoise.landscape.CellDataTestData;
 import dk.au.bios.porpoise.landscape.DataFileMetaData;
 import dk.au.bios.porpoise.landscape.GridSpatialPartitioning;
+import dk.au.bios.porpoise.landscape.HydrophoneArray;
+import dk.au.bios.porpoise.ships.ShipTimeline;
 import dk.au.bios.porpoise.tasks.DeterrenceTask;
+import dk.au.bios.porpoise.tasks.ShipMoveTask;
 import repast.simphony.context.Context;
 import repast.simphony.context.DefaultContext;
 import repast.simphony.context.space.continuous.ContinuousSpaceFactory;
@@ -122,6 +126,7 @@ public abstract class AbstractSimulationBDDTest {
 		Globals.setGrid(grid);
 		Globals.setSpatialPartitioning(new GridSpatialPartitioning(25, 25));
 		space.addProjectionListener(Globals.getSpatialPartitioning());
+		Globals.setHydrophones(new HydrophoneArray(List.of()));
 		DispersalFactory.setType("off");
 		final ScheduleParameters deterenceParams = ScheduleParameters.createRepeating(0, 1,
 				AgentPriority.PORP_DETERRENCE);
@@ -167,6 +172,12 @@ public abstract class AbstractSimulationBDDTest {
 		return p;
 	}
 
+	protected void scheduleShips(Ship... ships) {
+		// Ships are moved by the ship timeline, as set up by the ShipLoader
+		schedule.schedule(ScheduleParameters.createRepeating(0, 1, AgentPriority.SHIP_MOVE),
+				new ShipMoveTask(new ShipTimeline(List.of(ships))));
+	}
+
 	protected Porpoise findPorpoiseById(int id) {
 		return porpoiseStream().filter(p -> p.getId() == id).findAny().orElse(null);
 	}
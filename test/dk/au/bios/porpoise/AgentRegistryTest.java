@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import dk.au.bios.porpoise.behavior.DispersalFactory;
+import dk.au.bios.porpoise.behavior.FastRefMemTurn;
+import repast.simphony.space.continuous.NdPoint;
+
+public class AgentRegistryTest extends AbstractSimulationBDDTest {
+
+	@Test
+	public void agentsKeptInContextOrder() throws Exception {
+		aNewWorld(100, 100);
+
+		var a = new Turbine("a", 200, 10.0, 10.0, 0, 10, 0);
+		var b = new Turbine("b", 200, 20.0, 20.0, 0, 10, 1);
+		context.add(a);
+		context.add(b);
+
+		// Agents added before the registry is created are included
+		var turbines = AgentRegistry.forContext(context).getTurbines();
+		assertThat(turbines).containsExactly(a, b);
+
+		var c = new Turbine("c", 200, 30.0, 30.0, 0, 10, 2);
+		var d = new Turbine("d", 200, 40.0, 40.0, 0, 10, 3);
+		context.add(c);
+		context.add(d);
+		context.remove(b);
+		assertThat(turbines.size()).isEqualTo(3);
+		assertThat(turbines.get(1)).isSameAs(c);
+		assertThat(turbines).containsExactly(a, c, d);
+
+		var source = new SoundSource(1.0);
+		context.add(source);
+		assertThat(AgentRegistry.forContext(context).getSoundSources()).containsExactly(source);
+		assertThat(turbines).containsExactly(a, c, d);
+	}
+
+	@Test
+	public void porpoisesInContextIterationOrder() throws Exception {
+		aNewWorld(100, 100);
+		DispersalFactory.setType("off");
+
+		var porpoises = AgentRegistry.forContext(context).getPorpoises();
+		var random = new Random(42);
+		var alive = new ArrayList<Porpoise>();
+		for (int round = 0; round < 20; round++) {
+			for (int i = 0; i < 10; i++) {
+				var p = new Porpoise(context, 1, new FastRefMemTurn());
+				context.add(p);
+				p.setPosition(new NdPoint(10.0, 10.0));
+				alive.add(p);
+			}
+			for (int i = 0; i < 4; i++) {
+				context.remove(alive.remove(random.nextInt(alive.size())));
+			}
+
+			var contextOrder = new ArrayList<Porpoise>();
+			context.getObjects(Porpoise.class).forEach(a -> contextOrder.add((Porpoise) a));
+			assertThat(porpoises).containsExactlyElementsOf(contextOrder);
+			assertThat(porpoises.toArray(new Porpoise[0])).containsExactlyElementsOf(contextOrder);
+		}
+	}
+
+	@Test
+	public void getRequiresCompactedList() throws Exception {
+		aNewWorld(100, 100);
+
+		var a = new Turbine("a", 200, 10.0, 10.0, 0, 10, 0);
+		var b = new Turbine("b", 200, 20.0, 20.0, 0, 10, 1);
+		context.add(a);
+		context.add(b);
+		var turbines = AgentRegistry.forContext(context).getTurbines();
+
+		context.remove(a);
+		assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> turbines.get(0));
+		turbines.compact();
+		assertThat(turbines.get(0)).isSameAs(b);
+	}
+
+	@Test
+	public void changesWhileIterating() throws Exception {
+		aNewWorld(100, 100);
+
+		var turbines = AgentRegistry.forContext(context).getTurbines();
+		var added = new ArrayList<Turbine>();
+		for (int i = 0; i < 20; i++) {
+			var t = new Turbine("t" + i, 200, 10.0, 10.0, 0, 10, i);
+			context.add(t);
+			added.add(t);
+		}
+
+		var visited = new ArrayList<Turbine>();
+		for (var t : turbines) {
+			visited.add(t);
+			if (visited.size() == 1) {
+				context.remove(added.get(5)); // Not visited yet
+				context.add(new Turbine("late", 200, 10.0, 10.0, 0, 10, 20)); // Not visited at all
+			}
+		}
+
+		var expected = new ArrayList<>(added);
+		expected.remove(5);
+		assertThat(visited).containsExactlyElementsOf(expected);
+		assertThat(turbines.size()).isEqualTo(20);
+		assertThat(turbines.toArray(new Turbine[0])).hasSize(20).startsWith(expected.toArray(new Turbine[0]));
+	}
+
+}
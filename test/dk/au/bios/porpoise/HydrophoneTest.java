@@ -38,6 +38,7 @@ import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
+import dk.au.bios.porpoise.landscape.HydrophoneArray;
 import dk.au.bios.porpoise.ships.Buoy;
 import dk.au.bios.porpoise.ships.Route;
 import dk.au.bios.porpoise.util.SimulationTime;
@@ -51,6 +52,7 @@ public class HydrophoneTest extends AbstractSimulationBDDTest {
 		var hydrophone = new Hydrophone(1, "test1");
 		context.add(hydrophone);
 		hydrophone.setPosition(new NdPoint(50.0d, 50.0d));
+		Globals.setHydrophones(new HydrophoneArray(List.of(hydrophone)));
 
 		var buoys = new ArrayList<Buoy>();
 		buoys.add(new Buoy(convertGridXToUtm(24.0), convertGridYToUtm(50.0), 10.0, 0));
@@ -66,7 +68,7 @@ public class HydrophoneTest extends AbstractSimulationBDDTest {
 		context.add(ship);
 		ship.initialize();
 
-		schedule.schedule(ship);
+		scheduleShips(ship);
 		
 		assertThat(hydrophone.getPosition().getX()).isEqualTo(50.0);
 		assertThat(hydrophone.getPosition().getY()).isEqualTo(50.0);
@@ -174,4 +174,70 @@ class PorpoiseTest extends AbstractSimulationBDDTest {
 		});
 	}
 
+	@Test
+	public void birthWeaningAndMatingOnTheirDays() throws Exception {
+		aNewWorld(100, 100);
+		DispersalFactory.setType("off");
+
+		// The mocked random source makes the porpoise pregnant with 0 days since mating, and mating day is day 0
+		var p = new Porpoise(context, 1, new FastRefMemTurn());
+		context.add(p);
+		p.setPosition(new NdPoint(10.0, 10.0));
+		assertThat(p.getPregnancyStatus()).isEqualTo((byte) 1);
+
+		ScheduleParameters sp = ScheduleParameters.createRepeating(0, 48, AgentPriority.DAILY);
+		schedule.schedule(sp, p, "performDailyStep", new Object[0]);
+
+		runUntilDay(299);
+		assertThat(p.getCalvesBorn()).isEqualTo(0);
+		runUntilDay(300);
+		assertThat(p.getCalvesBorn()).isEqualTo(1);
+		assertThat(p.getPregnancyStatus()).isEqualTo((byte) 2);
+
+		runUntilDay(359);
+		assertThat(p.getPregnancyStatus()).isEqualTo((byte) 2);
+		runUntilDay(360);
+		assertThat(p.getPregnancyStatus()).isEqualTo((byte) 1);
+
+		runUntilDay(539);
+		assertThat(p.getCalvesWeaned()).isEqualTo(0);
+		runUntilDay(540);
+		assertThat(p.getCalvesWeaned()).isEqualTo(1);
+
+		runUntilDay(659);
+		assertThat(p.getCalvesBorn()).isEqualTo(1);
+		runUntilDay(660);
+		assertThat(p.getCalvesBorn()).isEqualTo(2);
+	}
+
+	@Test
+	public void calfHasEmptyMemoryWithoutCalfPsm() throws Exception {
+		aNewWorld(100, 100);
+		DispersalFactory.setType("off");
+
+		var p = new Porpoise(context, 1, new FastRefMemTurn());
+		context.add(p);
+		p.setPosition(new NdPoint(10.0, 10.0));
+		p.setHeading(0.0);
+
+		schedule.schedule(ScheduleParameters.createRepeating(0, 48, AgentPriority.DAILY), p, "performDailyStep",
+				new Object[0]);
+		runUntilDay(300);
+		assertThat(p.getCalvesBorn()).isEqualTo(1);
+
+		// The mother forages with the calf, but DispersalOff calves do not build up a memory while nursing
+		schedule.schedule(ScheduleParameters.createRepeating(schedule.getTickCount() + 1, 1, AgentPriority.PORP_MOVE),
+				p, "move", new Object[0]);
+		runUntilDay(301);
+		assertThat(p.getPersistentSpatialMemory().getMemCells().size()).isPositive();
+		assertThat(p.getCalfPersistentSpatialMemory()).isNotNull();
+		assertThat(p.getCalfPersistentSpatialMemory().getMemCells().size()).isZero();
+	}
+
+	private void runUntilDay(int day) {
+		while (schedule.getTickCount() < day * 48) {
+			schedule.execute();
+		}
+	}
+
 }
@@ -46,7 +46,9 @@ import org.junit.jupiter.params.provider.MethodSource;
 
 import dk.au.bios.porpoise.ships.Buoy;
 import dk.au.bios.porpoise.ships.Route;
+import dk.au.bios.porpoise.util.SimulationExecutor;
 import dk.au.bios.porpoise.util.SimulationTime;
+import repast.simphony.random.RandomHelper;
 import repast.simphony.space.continuous.NdPoint;
 
 public class ShipTest extends AbstractSimulationBDDTest {
@@ -69,7 +71,7 @@ public class ShipTest extends AbstractSimulationBDDTest {
 		context.add(ship);
 		ship.setPosition(shipInitialPosition);
 
-		schedule.schedule(ship);
+		scheduleShips(ship);
 
 		var expectedPositions = List.of(
 				buoys.get(0).getNdPoint(), buoys.get(1).getNdPoint(), buoys.get(2).getNdPoint(),
@@ -101,7 +103,7 @@ public class ShipTest extends AbstractSimulationBDDTest {
 		context.add(ship);
 		ship.setPosition(shipInitialPosition);
 
-		schedule.schedule(ship);
+		scheduleShips(ship);
 
 		var expectedPositions = List.of(
 				buoys.get(0).getNdPoint(), buoys.get(1).getNdPoint(), buoys.get(2).getNdPoint(),
@@ -131,7 +133,7 @@ public class ShipTest extends AbstractSimulationBDDTest {
 		context.add(ship);
 		ship.setPosition(shipInitialPosition);
 
-		schedule.schedule(ship);
+		scheduleShips(ship);
 
 		var expectedPositions = List.of(shipInitialPosition, shipInitialPosition, shipInitialPosition,
 				buoys.get(0).getNdPoint(), buoys.get(1).getNdPoint(), buoys.get(2).getNdPoint(),
@@ -161,7 +163,7 @@ public class ShipTest extends AbstractSimulationBDDTest {
 		context.add(ship);
 		ship.setPosition(shipInitialPosition);
 
-		schedule.schedule(ship);
+		scheduleShips(ship);
 
 		var expectedPositions = List.of(shipInitialPosition, shipInitialPosition, buoys.get(0).getNdPoint(),
 				buoys.get(1).getNdPoint(), buoys.get(1).getNdPoint(), buoys.get(1).getNdPoint(),
@@ -198,7 +200,7 @@ public class ShipTest extends AbstractSimulationBDDTest {
 		context.add(ship);
 		ship.setPosition(shipInitialPosition);
 
-		schedule.schedule(ship);
+		scheduleShips(ship);
 
 		var expectedDeterrence = List.of(0.0000d, 0.0000d, 0.0000d, 0.0000d, 1.5884d, 1.5894d, 1.5438d, 1.5822d,
 				1.5263d, 0.0000d, 0.0000d, 0.0000d, 0.0000d);
@@ -254,7 +256,7 @@ public class ShipTest extends AbstractSimulationBDDTest {
 		context.add(ship);
 		ship.setPosition(shipInitialPosition);
 
-		schedule.schedule(ship);
+		scheduleShips(ship);
 
 		var expectedDeterrence = List.of(0.0000d, 0.0000d, 0.0000d, 0.0000d, 1.5884d, 1.5894d, 0.0000d, 0.0000d,
 				1.5555d, 1.5751d, 1.5306d, 0.0000d, 0.0000d);
@@ -291,6 +293,46 @@ public class ShipTest extends AbstractSimulationBDDTest {
 		}
 	}
 
+	@Test
+	public void parallelDeterrenceDoesNotDependOnThreads() throws Exception {
+		try {
+			var singleThreaded = porpoisePositionsWithParallelShips(1);
+			var multiThreaded = porpoisePositionsWithParallelShips(4);
+
+			assertThat(singleThreaded).hasSize(13).containsExactlyElementsOf(multiThreaded);
+		} finally {
+			Globals.setSimulationExecutor(new SimulationExecutor(1));
+		}
+	}
+
+	private List<NdPoint> porpoisePositionsWithParallelShips(int threads) throws Exception {
+		aNewWorld(100, 100);
+		SimulationParameters.disableCrwRandomness();
+		SimulationParameters.setShipDeterrenceParallel(true);
+		Globals.setSimulationExecutor(new SimulationExecutor(threads));
+		RandomHelper.setSeed(1234);
+		var porpoise = aPorpoise(22.0, 50.0, 90.0);
+
+		for (int i = 0; i < 2; i++) {
+			var buoys = new ArrayList<Buoy>();
+			for (int y = 40; y <= 60; y += 2) {
+				buoys.add(new Buoy(convertGridXToUtm(20.0 + i * 4), convertGridYToUtm(y), 10.0, 0));
+			}
+			var ship = new Ship("ship" + i, CONTAINERSHIP, 366.00, new Route("route" + i, buoys), 3, 13);
+			ship.setRandomStreamIndex(i);
+			context.add(ship);
+			ship.setPosition(new NdPoint(20.0 + i * 4, 40.0));
+			scheduleShips(ship);
+		}
+
+		var positions = new ArrayList<NdPoint>();
+		for (int i = 0; i < 13; i++) {
+			schedule.execute();
+			positions.add(porpoise.getPosition());
+		}
+		return positions;
+	}
+
 	@Test
 	public void moveNearBorder() throws Exception {
 		aNewWorld(100, 100);
@@ -305,7 +347,7 @@ public class ShipTest extends AbstractSimulationBDDTest {
 		context.add(ship);
 		ship.initialize();
 
-		schedule.schedule(ship);
+		scheduleShips(ship);
 
 		var expectedPositions = List.of(buoys.get(0).getNdPoint(), buoys.get(1).getNdPoint(), buoys.get(2).getNdPoint(),
 				buoys.get(3).getNdPoint());
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+public class TurbineScheduleTest extends AbstractSimulationBDDTest {
+
+	@Test
+	public void turbinesAddedAndRemovedAtBoundaryTicks() throws Exception {
+		aNewWorld(100, 100);
+
+		var turbines = List.of(new Turbine("late", 200, 10.0, 10.0, 3, 4, 0),
+				new Turbine("early", 200, 20.0, 20.0, 0, 2, 1), new Turbine("short", 200, 30.0, 30.0, 1, 1, 2),
+				new Turbine("same-start", 200, 40.0, 40.0, 0, 0, 3));
+		var turbineSchedule = new TurbineSchedule(turbines);
+		assertThat(turbineSchedule.getPendingCount()).isEqualTo(4);
+
+		// Turbines are removed after the deterrence in the tick after their end tick
+		var expectedActive = List.of(List.of("early", "same-start"), List.of("early", "short", "same-start"),
+				List.of("early", "short"), List.of("early", "late"), List.of("late"), List.of("late"), List.of());
+		for (int tick = 0; tick < expectedActive.size(); tick++) {
+			turbineSchedule.activate(context, tick);
+			assertThat(turbineNames()).containsExactlyInAnyOrderElementsOf(expectedActive.get(tick));
+			turbineSchedule.deactivate(context, tick);
+		}
+		assertThat(turbineSchedule.getPendingCount()).isEqualTo(0);
+		assertThat(turbineSchedule.getActiveCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void manyOverlappingTurbines() throws Exception {
+		aNewWorld(100, 100);
+
+		var turbines = new ArrayList<Turbine>();
+		for (int i = 0; i < 10000; i++) {
+			turbines.add(new Turbine("t" + i, 200, i % 100, (i / 100) % 100, i % 500, i % 500 + i % 37, i));
+		}
+		var turbineSchedule = new TurbineSchedule(turbines);
+		for (int tick = 0; tick < 600; tick++) {
+			turbineSchedule.activate(context, tick);
+			final int now = tick;
+			long expected = turbines.stream().filter(t -> t.getStartTick() <= now && t.getEndTick() >= now - 1).count();
+			assertThat(context.getObjectsAsStream(Turbine.class)).hasSize((int) expected);
+			turbineSchedule.deactivate(context, tick);
+		}
+		assertThat(context.getObjectsAsStream(Turbine.class)).isEmpty();
+	}
+
+	private List<String> turbineNames() {
+		return context.getObjectsAsStream(Turbine.class).map(t -> ((Turbine) t).getName())
+				.collect(Collectors.toList());
+	}
+
+}
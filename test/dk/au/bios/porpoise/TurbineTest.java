@@ -31,6 +31,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.within;
 
 import java.util.List;
+import java.util.Random;
 import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.Test;
@@ -166,4 +167,36 @@ public class TurbineTest extends AbstractSimulationBDDTest {
 		assertThat(context.getObjectsAsStream(Turbine.class)).hasSize(0);
 	}
 
+	@Test
+	public void deterrenceRasterBoundsExactDeterrence() throws Exception {
+		anOldWorld(100, 100);
+
+		final var raster = TurbineDeterrenceRaster.forImpact(234);
+		assertThat(TurbineDeterrenceRaster.forImpact(234)).isSameAs(raster);
+
+		final var random = new Random(42);
+		for (int i = 0; i < 100000; i++) {
+			final double offsetX = (random.nextDouble() - 0.5) * 4 * raster.getQueryRadius();
+			final double offsetY = (random.nextDouble() - 0.5) * 4 * raster.getQueryRadius();
+			final double dist = Math.sqrt(offsetX * offsetX + offsetY * offsetY);
+			final double deterrence = raster.deterrence(Globals.convertGridDistanceToUtm(dist));
+
+			if (dist > raster.getQueryRadius()) {
+				assertThat(deterrence).isLessThanOrEqualTo(0.0d);
+			}
+
+			final int cell = raster.cellAt(offsetX, offsetY);
+			if (cell >= 0) {
+				if (raster.isSilent(cell)) {
+					assertThat(deterrence).isLessThanOrEqualTo(0.0d);
+				}
+				// A porpoise deterred by exactly this amount must never be considered dominated by the cell
+				assertThat(raster.isDominatedBy(cell, deterrence)).isFalse();
+				assertThat(deterrence).isGreaterThanOrEqualTo(raster.getMinDeterrence(cell) - 1e-9);
+			} else {
+				assertThat(dist).isGreaterThan(raster.getQueryRadius());
+			}
+		}
+	}
+
 }
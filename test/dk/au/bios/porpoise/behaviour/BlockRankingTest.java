@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.behaviour;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import dk.au.bios.porpoise.behavior.BlockRanking;
+import dk.au.bios.porpoise.behavior.InnerDanishWatersDispersal;
+
+/**
+ * Unit test for the BlockRanking, comparing against the sort based selection of the high quality blocks.
+ */
+class BlockRankingTest {
+
+	private static final double MIN_DIST = 100 / 0.4;
+
+	@Test
+	public void sameBlocksAsSortedQualities() {
+		var random = new Random(3);
+		var allValues = List.of(InnerDanishWatersDispersal.BLOCK_VAL_HOMO, InnerDanishWatersDispersal.BLOCK_VAL_KAT_1,
+				InnerDanishWatersDispersal.BLOCK_VAL_KAT_2, InnerDanishWatersDispersal.BLOCK_VAL_KAT_3,
+				InnerDanishWatersDispersal.BLOCK_VAL_KAT_4);
+
+		for (var values : allValues) {
+			var ranking = new BlockRanking(values, InnerDanishWatersDispersal.BLOCK_CENTRES_X,
+					InnerDanishWatersDispersal.BLOCK_CENTRES_Y);
+			assertThat(ranking.isFor(values)).isTrue();
+
+			for (int i = 0; i < 1000; i++) {
+				final double x = random.nextDouble() * 600;
+				final double y = random.nextDouble() * 1000;
+
+				var actual = new int[12];
+				ranking.selectHighQualityBlocks(x, y, MIN_DIST, actual);
+				assertThat(actual).isEqualTo(sortedSelection(values, x, y, 12));
+			}
+		}
+	}
+
+	@Test
+	public void changedValuesNeedNewRanking() {
+		var values = InnerDanishWatersDispersal.BLOCK_VAL_KAT_1.clone();
+		var ranking = new BlockRanking(values, InnerDanishWatersDispersal.BLOCK_CENTRES_X,
+				InnerDanishWatersDispersal.BLOCK_CENTRES_Y);
+		values[1] = 0.5;
+
+		assertThat(ranking.isFor(values)).isFalse();
+		assertThat(ranking.isFor(InnerDanishWatersDispersal.BLOCK_VAL_KAT_1)).isFalse();
+	}
+
+	private static int[] sortedSelection(double[] blockValues, double x, double y, int count) {
+		var blockQuality = new double[blockValues.length];
+		for (int nbr = 0; nbr < blockQuality.length; nbr++) {
+			double oneDX = Math.abs(x - InnerDanishWatersDispersal.BLOCK_CENTRES_X[nbr]);
+			double oneDY = Math.abs(y - InnerDanishWatersDispersal.BLOCK_CENTRES_Y[nbr]);
+			double blockDist = Math.round(Math.sqrt(oneDX * oneDX + oneDY * oneDY));
+			blockQuality[nbr] = blockDist < MIN_DIST ? 0 : blockValues[nbr];
+		}
+
+		var highQualityBlocks = new int[count];
+		var blockQualitySorted = Arrays.copyOf(blockQuality, blockQuality.length);
+		Arrays.sort(blockQualitySorted);
+		for (int i = 0; i < highQualityBlocks.length; i++) {
+			double hiQualI = blockQualitySorted[blockQualitySorted.length - i - 1];
+			for (int j = 0; j < blockValues.length; j++) {
+				if (blockQuality[j] == hiQualI) {
+					highQualityBlocks[i] = j;
+				}
+			}
+		}
+		return highQualityBlocks;
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.behaviour;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import dk.au.bios.porpoise.Globals;
+import dk.au.bios.porpoise.behavior.CalfSpatialMemory;
+import dk.au.bios.porpoise.behavior.PersistentSpatialMemory;
+import dk.au.bios.porpoise.landscape.DataFileMetaData;
+import repast.simphony.space.continuous.NdPoint;
+
+/**
+ * Unit test for the CalfSpatialMemory.
+ */
+class CalfSpatialMemoryTest {
+
+	@Test
+	public void materializedMemoryMatchesDirectlyUpdatedMemory() {
+		Globals.setLandscapeMetadata(new DataFileMetaData(100, 100, 529473, 5972242, 400, null));
+		final var random = new Random(42);
+		final var mother = new PersistentSpatialMemory(100, 100, 10);
+
+		// Mother knows part of the landscape before the birth
+		for (int i = 0; i < 200; i++) {
+			mother.updateMemory(new NdPoint(random.nextInt(50), random.nextInt(50)), random.nextDouble());
+		}
+
+		final var view = new CalfSpatialMemory(mother, 7.5);
+		final var expected = new PersistentSpatialMemory(100, 100, 7.5);
+		final var positions = new ArrayList<NdPoint>();
+		for (int i = 0; i < 1000; i++) {
+			final var pos = new NdPoint(random.nextInt(100), random.nextInt(100));
+			final var food = random.nextInt(4) == 0 ? 0.0 : random.nextDouble();
+			positions.add(pos);
+			final int index = mother.updateMemory(pos, food);
+			if (index >= 0) {
+				view.record(index, food);
+			}
+			expected.updateMemory(pos, food);
+		}
+
+		final var calf = view.materialize();
+		assertThat(calf.getPreferredDistance()).isEqualTo(7.5);
+		final var cells = calf.getMemCells();
+		final var expectedCells = expected.getMemCells();
+		assertThat(cells.size()).isEqualTo(expectedCells.size());
+		for (int i = 0; i < cells.size(); i++) {
+			assertThat(cells.getCell(i)).isEqualTo(expectedCells.getCell(i));
+			assertThat(cells.getTicksSpent(i)).isEqualTo(expectedCells.getTicksSpent(i));
+			assertThat(cells.getFoodObtained(i)).isEqualTo(expectedCells.getFoodObtained(i));
+		}
+		assertThat(calf.getTargetIndex().findBestWithTravelCost(positions.get(0), 0.1)).isEqualTo(
+				expected.getTargetIndex().findBestWithTravelCost(positions.get(0), 0.1));
+	}
+
+	@Test
+	public void noFoodGivesEmptyMemory() {
+		Globals.setLandscapeMetadata(new DataFileMetaData(100, 100, 529473, 5972242, 400, null));
+		final var mother = new PersistentSpatialMemory(100, 100, 10);
+		mother.updateMemory(new NdPoint(21, 21), 0.25);
+
+		final var view = new CalfSpatialMemory(mother, 10);
+		assertThat(mother.updateMemory(new NdPoint(21, 21), 0.0)).isEqualTo(-1);
+
+		assertThat(view.materialize().getMemCells().size()).isZero();
+	}
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.behaviour;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import dk.au.bios.porpoise.behavior.MemCellStore;
+
+/**
+ * Unit test for the MemCellStore.
+ */
+class MemCellStoreTest {
+
+	@Test
+	public void matchesMapOfVisitedCells() {
+		var random = new Random(7);
+		var store = new MemCellStore();
+		var ticks = new HashMap<Integer, Long>();
+		var food = new HashMap<Integer, Double>();
+		var order = new ArrayList<Integer>();
+
+		for (int i = 0; i < 50000; i++) {
+			// Cell numbers spread over a large landscape, including multiples of the table size
+			final int cell = random.nextBoolean() ? random.nextInt(4000) : random.nextInt(200) * 4096;
+			final double eaten = random.nextDouble();
+			if (!ticks.containsKey(cell)) {
+				order.add(cell);
+			}
+			ticks.merge(cell, 1L, Long::sum);
+			food.merge(cell, eaten, Double::sum);
+			store.add(cell, eaten);
+		}
+
+		assertThat(store.size()).isEqualTo(order.size());
+		for (int i = 0; i < store.size(); i++) {
+			final int cell = order.get(i);
+			assertThat(store.getCell(i)).isEqualTo(cell);
+			assertThat(store.indexOf(cell)).isEqualTo(i);
+			assertThat(store.getTicksSpent(i)).isEqualTo(ticks.get(cell));
+			assertThat(store.getFoodObtained(i)).isEqualTo(food.get(cell));
+		}
+		assertThat(store.indexOf(-5)).isEqualTo(-1);
+		assertThat(store.indexOf(4001)).isEqualTo(-1);
+	}
+
+	@Test
+	public void copyIsIndependent() {
+		var store = new MemCellStore();
+		List.of(3, 5, 3).forEach(c -> store.add(c, 0.5));
+
+		var copy = new MemCellStore(store);
+		copy.add(3, 0.5);
+		copy.add(9, 0.5);
+
+		assertThat(store.size()).isEqualTo(2);
+		assertThat(store.getTicksSpent(store.indexOf(3))).isEqualTo(2);
+		assertThat(store.indexOf(9)).isEqualTo(-1);
+		assertThat(copy.size()).isEqualTo(3);
+		assertThat(copy.getTicksSpent(copy.indexOf(3))).isEqualTo(3);
+		assertThat(copy.getEnergyExpectation(copy.indexOf(3))).isEqualTo(0.5);
+	}
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.behaviour;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import dk.au.bios.porpoise.AbstractSimulationBDDTest;
+import dk.au.bios.porpoise.Globals;
+import dk.au.bios.porpoise.behavior.PersistentSpatialMemory;
+import repast.simphony.space.continuous.NdPoint;
+
+/**
+ * Unit test for the PsmTargetIndex, comparing against a scan of all cells in the order they were first visited.
+ */
+class PsmTargetIndexTest extends AbstractSimulationBDDTest {
+
+	@Test
+	public void sameTargetsAsFullScan() throws Exception {
+		aNewWorld(400, 400);
+		var random = new Random(11);
+
+		for (int trial = 0; trial < 50; trial++) {
+			var psm = new PersistentSpatialMemory(400, 400, 10);
+			for (int i = 0; i < 2000; i++) {
+				// Coarse food amounts give ties in fitness
+				var pos = new NdPoint(random.nextDouble() * 399, random.nextDouble() * 399);
+				psm.updateMemory(pos, 0.25 * (1 + random.nextInt(4)));
+			}
+
+			var position = new NdPoint(random.nextDouble() * 399, random.nextDouble() * 399);
+			var minDist = random.nextDouble() * 200;
+			var maxDist = minDist + 25;
+			var q1 = new double[] { 0.0, 0.01, 0.05, 0.8 }[trial % 4];
+
+			int expectedAnnulus = -1;
+			double annulusFitness = -1.0;
+			int expectedTravel = -1;
+			double travelFitness = -1.0;
+			for (var entry : psm.getMemCellData().entrySet()) {
+				var center = psm.calcMemCellCenterPoint(entry.getKey());
+				var dist = Globals.getSpace().getDistance(position, center);
+				var expectation = entry.getValue().getEnergyExpectation();
+				if (dist >= minDist && dist <= maxDist && expectation > annulusFitness) {
+					annulusFitness = expectation;
+					expectedAnnulus = entry.getKey();
+				}
+				var fitness = expectation - expectation * (1 - Math.exp(-dist * q1));
+				if (fitness > travelFitness) {
+					travelFitness = fitness;
+					expectedTravel = entry.getKey();
+				}
+			}
+
+			assertThat(psm.getTargetIndex().findBestInAnnulus(position, minDist, maxDist)).isEqualTo(expectedAnnulus);
+			assertThat(psm.getTargetIndex().findBestWithTravelCost(position, q1)).isEqualTo(expectedTravel);
+		}
+	}
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.landscape;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import org.junit.jupiter.api.Test;
+
+import dk.au.bios.porpoise.Agent;
+import dk.au.bios.porpoise.Globals;
+import dk.au.bios.porpoise.Porpoise;
+import dk.au.bios.porpoise.behavior.DispersalFactory;
+import dk.au.bios.porpoise.behavior.FastRefMemTurn;
+import dk.au.bios.porpoise.behavior.RandomSource;
+import repast.simphony.context.Context;
+import repast.simphony.context.DefaultContext;
+import repast.simphony.context.space.continuous.ContinuousSpaceFactoryFinder;
+import repast.simphony.context.space.grid.GridFactoryFinder;
+import repast.simphony.space.continuous.BouncyBorders;
+import repast.simphony.space.continuous.NdPoint;
+import repast.simphony.space.continuous.RandomCartesianAdder;
+import repast.simphony.space.grid.GridBuilderParameters;
+import repast.simphony.space.grid.SimpleGridAdder;
+
+class BlockCounterTest {
+
+	private Context<Agent> context;
+	private BlockCounter blockCounter;
+
+	/**
+	 * A 100x100 world, block 0 in the west half and block 1 in the east half. The northern-most 10 rows are not
+	 * part of any block.
+	 */
+	private void initWorld() {
+		DispersalFactory.setType("off");
+		Globals.setRandomSource(mock(RandomSource.class));
+		Globals.setLandscapeMetadata(new DataFileMetaData(100, 100, 529473, 5972242, 400, null));
+
+		var blocks = new int[100][100];
+		for (int x = 0; x < 100; x++) {
+			for (int y = 0; y < 100; y++) {
+				blocks[x][y] = y >= 90 ? -9999 : (x < 50 ? 0 : 1);
+			}
+		}
+
+		context = new DefaultContext<Agent>();
+		var factory = ContinuousSpaceFactoryFinder.createContinuousSpaceFactory(null);
+		var space = factory.createContinuousSpace("space", context, new RandomCartesianAdder<Agent>(),
+				new BouncyBorders(), new double[] { 100, 100 }, new double[] { 0.5f, 0.5f });
+		var gridFactory = GridFactoryFinder.createGridFactory(null);
+		var grid = gridFactory.createGrid("grid", context, new GridBuilderParameters<Agent>(
+				new repast.simphony.space.grid.BouncyBorders(), new SimpleGridAdder<Agent>(), true, 100, 100));
+		Globals.setSpace(space);
+		Globals.setGrid(grid);
+		blockCounter = new BlockCounter(blocks);
+		space.addProjectionListener(blockCounter);
+	}
+
+	@Test
+	void countsFollowPorpoises() {
+		initWorld();
+		assertThat(blockCounter.getNumBlocks()).isEqualTo(2);
+
+		var p1 = aPorpoiseAt(10, 10);
+		var p2 = aPorpoiseAt(20, 20);
+		assertThat(blockCounter.getSnapshot()).containsExactly(2, 0);
+
+		p1.setPosition(new NdPoint(60, 10));
+		assertThat(blockCounter.getSnapshot()).containsExactly(1, 1);
+
+		p2.setPosition(new NdPoint(20, 95));
+		assertThat(blockCounter.getSnapshot()).containsExactly(0, 1);
+
+		p2.setPosition(new NdPoint(20, 50));
+		context.remove(p1);
+		assertThat(blockCounter.getSnapshot()).containsExactly(1, 0);
+	}
+
+	@Test
+	void snapshotIsOnlyCopiedOnChange() {
+		initWorld();
+		var p = aPorpoiseAt(10, 10);
+
+		var snapshot = blockCounter.getSnapshot();
+		p.setPosition(new NdPoint(30, 30));  // Same block
+		assertThat(blockCounter.getSnapshot()).isSameAs(snapshot);
+
+		p.setPosition(new NdPoint(70, 30));
+		assertThat(blockCounter.getSnapshot()).isNotSameAs(snapshot).containsExactly(0, 1);
+		assertThat(snapshot).containsExactly(1, 0);
+	}
+
+	private Porpoise aPorpoiseAt(double x, double y) {
+		var porp = new Porpoise(context, 1, new FastRefMemTurn());
+		context.add(porp);
+		porp.setPosition(new NdPoint(x, y));
+		return porp;
+	}
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.landscape;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import dk.au.bios.porpoise.AbstractSimulationBDDTest;
+import dk.au.bios.porpoise.Globals;
+
+class CellDataTest extends AbstractSimulationBDDTest {
+
+	@Test
+	public void validDispersalTargetsMatchDepthAndMaxEnt() throws Exception {
+		aNewWorld(100, 100);
+		final CellData cellData = Globals.getCellData();
+		cellData.getMaxEnt()[10][20] = 0.0;
+		cellData.getMaxEnt()[99][0] = -1.0;
+
+		for (int x = 0; x < 100; x++) {
+			for (int y = 0; y < 100; y++) {
+				final boolean expected = cellData.getDepth(x, y) > 0 && cellData.getMaxEnt(x, y) > 0.0f;
+				assertThat(cellData.isValidDispersalTarget(x, y)).isEqualTo(expected);
+			}
+		}
+
+		assertThat(cellData.isValidDispersalTarget(10, 20)).isFalse();
+		assertThat(cellData.isValidDispersalTarget(99, 0)).isFalse();
+		assertThat(cellData.isValidDispersalTarget(-1, 50)).isFalse();
+		assertThat(cellData.isValidDispersalTarget(50, -1)).isFalse();
+		assertThat(cellData.isValidDispersalTarget(100, 50)).isFalse();
+		assertThat(cellData.isValidDispersalTarget(50, 100)).isFalse();
+	}
+
+}
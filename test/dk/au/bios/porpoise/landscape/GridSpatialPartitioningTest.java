@@ -28,8 +28,14 @@
 package dk.au.bios.porpoise.landscape;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 import static org.mockito.Mockito.mock;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
 import org.junit.jupiter.api.Test;
 
 import dk.au.bios.porpoise.Agent;
@@ -44,7 +50,9 @@ import repast.simphony.context.space.continuous.ContinuousSpaceFactoryFinder;
 import repast.simphony.context.space.grid.GridFactoryFinder;
 import repast.simphony.space.continuous.BouncyBorders;
 import repast.simphony.space.continuous.NdPoint;
+import repast.simphony.space.continuous.PointTranslator;
 import repast.simphony.space.continuous.RandomCartesianAdder;
+import repast.simphony.space.continuous.WrapAroundBorders;
 import repast.simphony.space.grid.GridBuilderParameters;
 import repast.simphony.space.grid.SimpleGridAdder;
 
@@ -54,6 +62,15 @@ class GridSpatialPartitioningTest {
 	private GridSpatialPartitioning spatialPart;
 
 	private void initWorld(int width, int height, double xllcorner, double yllcorner) {
+		initWorld(width, height, xllcorner, yllcorner, false);
+	}
+
+	private void initWorld(int width, int height, double xllcorner, double yllcorner, boolean adaptive) {
+		initWorld(width, height, xllcorner, yllcorner, adaptive, new BouncyBorders());
+	}
+
+	private void initWorld(int width, int height, double xllcorner, double yllcorner, boolean adaptive,
+			PointTranslator borders) {
 		DispersalFactory.setType("off");
 		var random = mock(RandomSource.class);
 		Globals.setRandomSource(random);
@@ -61,12 +78,12 @@ class GridSpatialPartitioningTest {
 
 		context = new DefaultContext<Agent>();
 		var factory = ContinuousSpaceFactoryFinder.createContinuousSpaceFactory(null);
-		var space = factory.createContinuousSpace("space", context, new RandomCartesianAdder<Agent>(), new BouncyBorders(), new double[] { Globals.getWorldWidth(), Globals.getWorldHeight()}, new double[] {0.5f, 0.5f});
+		var space = factory.createContinuousSpace("space", context, new RandomCartesianAdder<Agent>(), borders, new double[] { Globals.getWorldWidth(), Globals.getWorldHeight()}, new double[] {0.5f, 0.5f});
 		var gridFactory = GridFactoryFinder.createGridFactory(null);
 		var grid = gridFactory.createGrid("grid", context, new GridBuilderParameters<Agent>(new repast.simphony.space.grid.BouncyBorders(), new SimpleGridAdder<Agent>(), true, Globals.getWorldWidth(), Globals.getWorldHeight()));
 		Globals.setSpace(space);
 		Globals.setGrid(grid);
-		spatialPart = new GridSpatialPartitioning(25, 25);
+		spatialPart = adaptive ? new GridSpatialPartitioning(25, 25, 5, 8, 2) : new GridSpatialPartitioning(25, 25);
 		Globals.setSpatialPartitioning(spatialPart);
 		space.addProjectionListener(spatialPart);
 	}
@@ -209,4 +226,196 @@ class GridSpatialPartitioningTest {
 		assertThat(spatialPart.getPorpoisesInNeighborhood(new NdPoint(300, 500), new NdPoint(350, 650))).hasSize(45);
 	}
 
+	@Test
+	void visitorAndCursorReturnEachPorpoiseOnce() {
+		initWorld(600, 1000, 529473, 5972242);
+
+		// Setup landscape with two porpoises in each super-grid cell
+		for (int gx = 0; gx < spatialPart.getWidth(); gx++) {
+			for (int gy = 0; gy < spatialPart.getHeight(); gy++) {
+				for (int i = 0; i < 2; i++) {
+					var porp = new Porpoise(context, 1, new FastRefMemTurn());
+					context.add(porp);
+					porp.setPosition(new NdPoint(gx * 25 + 5 + i * 10, gy * 25 + 12));
+				}
+			}
+		}
+		assertThat(spatialPart.size()).isEqualTo(24 * 40 * 2);
+
+		List<Porpoise> visited = new ArrayList<>();
+		spatialPart.forEachInNeighborhood(new NdPoint(300, 500), visited::add);
+		assertThat(visited).hasSize(18).doesNotHaveDuplicates()
+				.containsExactlyInAnyOrderElementsOf(spatialPart.getPorpoisesInNeighborhood(new NdPoint(300, 500)));
+
+		visited.clear();
+		spatialPart.forEachInNeighborhood(new NdPoint(300, 500), new NdPoint(350, 650), visited::add);
+		assertThat(visited).hasSize(90).doesNotHaveDuplicates();
+
+		var cursor = spatialPart.newCursor();
+		List<Porpoise> iterated = new ArrayList<>();
+		cursor.reset(new NdPoint(300, 500), new NdPoint(350, 650)).forEachRemaining(iterated::add);
+		assertThat(iterated).containsExactlyElementsOf(visited);
+
+		// Corner of the world, the neighborhood is clipped to 2x2 super-grid cells
+		iterated.clear();
+		cursor.reset(new NdPoint(0, 0)).forEachRemaining(iterated::add);
+		assertThat(iterated).hasSize(8).doesNotHaveDuplicates();
+	}
+
+	@Test
+	void slotsAreReused() {
+		initWorld(250, 250, 529473, 5972242);
+
+		List<Porpoise> porps = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			var porp = new Porpoise(context, 1, new FastRefMemTurn());
+			context.add(porp);
+			porp.setPosition(new NdPoint(i % 250, (i / 250) * 25));
+			porps.add(porp);
+		}
+		assertThat(spatialPart.size()).isEqualTo(2000);
+
+		for (int i = 0; i < 1000; i++) {
+			context.remove(porps.get(i * 2));
+		}
+		assertThat(spatialPart.size()).isEqualTo(1000);
+		assertThat(porps.get(0).getSpatialSlot()).isEqualTo(-1);
+
+		var p = new Porpoise(context, 1, new FastRefMemTurn());
+		context.add(p);
+		p.setPosition(new NdPoint(100, 100));
+		assertThat(p.getSpatialSlot()).isBetween(0, 1999);
+		assertThat(spatialPart.getPorpoisesInPartition(new NdPoint(100, 100))).contains(p);
+
+		p.setPosition(new NdPoint(240, 10));
+		assertThat(spatialPart.getPorpoisesInPartition(new NdPoint(100, 100))).doesNotContain(p);
+		assertThat(spatialPart.getPorpoisesInPartition(new NdPoint(240, 10))).contains(p);
+	}
+
+	@Test
+	void radiusQuery() {
+		initWorld(600, 1000, 529473, 5972242);
+		var near = aPorpoiseAt(300, 500);
+		var edge = aPorpoiseAt(330, 540);  // Distance 50
+		var far = aPorpoiseAt(340, 540);
+		aPorpoiseAt(10, 10);
+
+		List<Porpoise> found = new ArrayList<>();
+		List<Double> distances = new ArrayList<>();
+		spatialPart.forEachWithinRadius(new NdPoint(300, 500), 50.0, (p, dist) -> {
+			found.add(p);
+			distances.add(dist);
+		});
+		assertThat(found).containsExactlyInAnyOrder(near, edge).doesNotContain(far);
+		assertThat(distances).anySatisfy(d -> assertThat(d).isCloseTo(50.0, within(1e-9)));
+
+		found.clear();
+		spatialPart.forEachWithinRadius(new NdPoint(300, 500), 5000.0, (p, dist) -> found.add(p));
+		assertThat(found).hasSize(4).doesNotHaveDuplicates();
+	}
+
+	@Test
+	void segmentQuery() {
+		initWorld(600, 1000, 529473, 5972242);
+		var onPath = aPorpoiseAt(320, 502);
+		var besideStart = aPorpoiseAt(290, 495);
+		var beyondEnd = aPorpoiseAt(380, 500);
+		var farAside = aPorpoiseAt(320, 530);
+
+		List<Porpoise> found = new ArrayList<>();
+		spatialPart.forEachNearSegment(new NdPoint(300, 500), new NdPoint(350, 500), 25.0, found::add);
+		assertThat(found).containsExactlyInAnyOrder(onPath, besideStart).doesNotContain(beyondEnd, farAside);
+	}
+
+	@Test
+	void segmentQueryInPeriodicSpace() {
+		// The width is not a multiple of the cell size, so the cells cannot wrap and none are pruned
+		initWorld(610, 1000, 529473, 5972242, false, new WrapAroundBorders());
+		var acrossBorder = aPorpoiseAt(605, 500); // Distance 10 to the start when wrapped
+		var nearEnd = aPorpoiseAt(30, 510);
+		var beyondEnd = aPorpoiseAt(50, 500);
+		var farAway = aPorpoiseAt(300, 500);
+
+		List<Porpoise> found = new ArrayList<>();
+		spatialPart.forEachNearSegment(new NdPoint(5, 500), new NdPoint(20, 500), 25.0, found::add);
+		assertThat(found).containsExactlyInAnyOrder(acrossBorder, nearEnd).doesNotContain(beyondEnd, farAway);
+	}
+
+	@Test
+	void nearestQuery() {
+		initWorld(600, 1000, 529473, 5972242);
+		var first = aPorpoiseAt(301, 500);
+		var second = aPorpoiseAt(300, 520);
+		var third = aPorpoiseAt(250, 400);
+		aPorpoiseAt(590, 990);
+
+		assertThat(spatialPart.getNearestPorpoises(new NdPoint(300, 500), 3)).containsExactly(first, second, third);
+		assertThat(spatialPart.getNearestPorpoises(new NdPoint(300, 500), 10)).hasSize(4);
+		assertThat(spatialPart.getNearestPorpoises(new NdPoint(300, 500), 0)).isEmpty();
+	}
+
+	@Test
+	void adaptiveSplitAndMerge() {
+		initWorld(600, 1000, 529473, 5972242, true);
+		var random = new Random(42);
+
+		// A dense cluster in one super-grid cell, and a few porpoises in the rest of the landscape
+		List<Porpoise> porps = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			porps.add(aPorpoiseAt(300 + random.nextDouble() * 24, 500 + random.nextDouble() * 24));
+		}
+		for (int i = 0; i < 50; i++) {
+			porps.add(aPorpoiseAt(random.nextDouble() * 599, random.nextDouble() * 999));
+		}
+		assertThat(spatialPart.getSplitCellCount()).isGreaterThanOrEqualTo(1);
+		assertQueriesMatchBruteForce(porps);
+
+		// Disperse the cluster, the split cells are merged again
+		for (int i = 0; i < 50; i++) {
+			porps.get(i).setPosition(new NdPoint(random.nextDouble() * 599, random.nextDouble() * 999));
+		}
+		assertThat(spatialPart.getSplitCellCount()).isZero();
+		assertQueriesMatchBruteForce(porps);
+
+		// Gather the porpoises again and remove some of them
+		for (int i = 0; i < 50; i++) {
+			porps.get(i).setPosition(new NdPoint(100 + random.nextDouble() * 24, 100 + random.nextDouble() * 24));
+		}
+		for (int i = 0; i < 10; i++) {
+			context.remove(porps.remove(0));
+		}
+		assertThat(spatialPart.size()).isEqualTo(90);
+		assertThat(spatialPart.getSplitCellCount()).isGreaterThanOrEqualTo(1);
+		assertQueriesMatchBruteForce(porps);
+	}
+
+	private void assertQueriesMatchBruteForce(List<Porpoise> porps) {
+		var center = new NdPoint(305, 510);
+		List<Porpoise> found = new ArrayList<>();
+		spatialPart.forEachWithinRadius(center, 10.0, (p, dist) -> found.add(p));
+		assertThat(found).doesNotHaveDuplicates().containsExactlyInAnyOrderElementsOf(
+				porps.stream().filter(p -> Globals.getSpace().getDistance(center, p.getPosition()) <= 10.0).collect(Collectors.toList()));
+
+		found.clear();
+		spatialPart.forEachNearSegment(new NdPoint(90, 110), new NdPoint(320, 510), 5.0, found::add);
+		assertThat(found).doesNotHaveDuplicates();
+
+		found.clear();
+		spatialPart.forEachInNeighborhood(center, found::add);
+		assertThat(found).doesNotHaveDuplicates().containsExactlyInAnyOrderElementsOf(porps.stream().filter(
+				p -> Math.abs((int) (p.getPosition().getX() / 25) - 12) <= 1
+						&& Math.abs((int) (p.getPosition().getY() / 25) - 20) <= 1).collect(Collectors.toList()));
+
+		List<Porpoise> iterated = new ArrayList<>();
+		spatialPart.newCursor().reset(center).forEachRemaining(iterated::add);
+		assertThat(iterated).containsExactlyElementsOf(found);
+	}
+
+	private Porpoise aPorpoiseAt(double x, double y) {
+		var porp = new Porpoise(context, 1, new FastRefMemTurn());
+		context.add(porp);
+		porp.setPosition(new NdPoint(x, y));
+		return porp;
+	}
+
 }
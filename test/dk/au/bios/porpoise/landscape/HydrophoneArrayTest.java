@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.landscape;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import dk.au.bios.porpoise.AbstractSimulationBDDTest;
+import dk.au.bios.porpoise.Globals;
+import dk.au.bios.porpoise.Hydrophone;
+import repast.simphony.space.continuous.NdPoint;
+
+class HydrophoneArrayTest extends AbstractSimulationBDDTest {
+
+	@Test
+	public void findWithinMatchesAllDistances() throws Exception {
+		aNewWorld(100, 100);
+		var random = new Random(42);
+		var hydrophones = new ArrayList<Hydrophone>();
+		for (int i = 0; i < 200; i++) {
+			var h = new Hydrophone(i, "h" + i);
+			context.add(h);
+			h.setPosition(new NdPoint(random.nextDouble() * 100, random.nextDouble() * 100));
+			hydrophones.add(h);
+		}
+		var array = new HydrophoneArray(hydrophones);
+		var batch = new HydrophoneArray.Batch();
+
+		for (int q = 0; q < 100; q++) {
+			var pos = new NdPoint(random.nextDouble() * 100, random.nextDouble() * 100);
+			var maxDistance = random.nextDouble() * 20000;
+
+			array.findWithin(pos, maxDistance, batch);
+			var found = new HashMap<Hydrophone, Double>();
+			for (int i = 0; i < batch.size(); i++) {
+				found.put(batch.getHydrophone(i), batch.getDistance(i));
+			}
+
+			var expected = new HashMap<Hydrophone, Double>();
+			for (var h : hydrophones) {
+				var distance = Globals.convertGridDistanceToUtm(pos, h.getPosition());
+				if (distance <= maxDistance) {
+					expected.put(h, distance);
+				}
+			}
+			assertThat(found).isEqualTo(expected);
+		}
+	}
+
+}
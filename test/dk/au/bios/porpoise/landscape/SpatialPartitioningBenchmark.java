@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.landscape;
+
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import dk.au.bios.porpoise.Agent;
+import dk.au.bios.porpoise.Globals;
+import dk.au.bios.porpoise.Porpoise;
+import dk.au.bios.porpoise.behavior.DispersalFactory;
+import dk.au.bios.porpoise.behavior.FastRefMemTurn;
+import dk.au.bios.porpoise.behavior.RandomSource;
+import repast.simphony.context.Context;
+import repast.simphony.context.DefaultContext;
+import repast.simphony.context.space.continuous.ContinuousSpaceFactoryFinder;
+import repast.simphony.context.space.grid.GridFactoryFinder;
+import repast.simphony.space.continuous.BouncyBorders;
+import repast.simphony.space.continuous.ContinuousSpace;
+import repast.simphony.space.continuous.NdPoint;
+import repast.simphony.space.continuous.RandomCartesianAdder;
+import repast.simphony.space.grid.GridBuilderParameters;
+import repast.simphony.space.grid.SimpleGridAdder;
+import repast.simphony.space.projection.ProjectionEvent;
+
+/**
+ * Micro-benchmark of the spatial partitioning queries on a North Sea sized landscape. Compares the set based queries
+ * (allocating a HashSet per query, like the original implementation) with the visitor and cursor queries.
+ *
+ * Part of the porpoises are placed in a few dense hot spots, crossed by shipping lanes. The ship and sound source
+ * deterrence queries (segment and radius queries) in the hot spots are compared between the fixed grid and the
+ * adaptive (two-level) grid. Ships are emulated by segment queries along their path during a tick.
+ *
+ * Run as a Java application from the test classpath.
+ */
+public class SpatialPartitioningBenchmark {
+
+	private static final int WORLD_WIDTH = 2088;
+	private static final int WORLD_HEIGHT = 2175;
+	private static final int PORPOISE_COUNT = 10000;
+	private static final int HOTSPOT_COUNT = 10;
+	private static final int HOTSPOT_PORPOISES = 2000;
+	private static final double HOTSPOT_RADIUS = 40;
+	private static final double SHIP_DETER_DISTANCE = 25;
+	private static final int QUERIES = 200000;
+	private static final int ROUNDS = 5;
+
+	private final Context<Agent> context = new DefaultContext<>();
+	private final List<Porpoise> porpoises = new ArrayList<>();
+	private final Random random = new Random(1234);
+	private final List<NdPoint> hotspots = new ArrayList<>();
+	private ContinuousSpace<Agent> space;
+	private GridSpatialPartitioning spatialPart;
+	private long blackhole;
+
+	public static void main(String[] args) {
+		var benchmark = new SpatialPartitioningBenchmark();
+		benchmark.setup();
+
+		for (var adaptive : new boolean[] { false, true }) {
+			benchmark.usePartitioning(adaptive ? new GridSpatialPartitioning(25, 25, 5, 64, 16)
+					: new GridSpatialPartitioning(25, 25));
+			System.out.println((adaptive ? "Adaptive" : "Fixed") + " grid, split cells: "
+					+ benchmark.spatialPart.getSplitCellCount());
+
+			for (int round = 0; round < ROUNDS; round++) {
+				System.out.println("Round " + (round + 1) + (round == 0 ? " (warmup)" : ""));
+				benchmark.run("set, segment", benchmark::setSegmentQuery);
+				benchmark.run("visitor, segment", benchmark::visitorSegmentQuery);
+				benchmark.run("cursor, segment", benchmark::cursorSegmentQuery);
+				benchmark.run("ship lane", benchmark::shipLaneQuery);
+				benchmark.run("sound source", benchmark::radiusQuery);
+				benchmark.run("move", benchmark::moveUpdate);
+			}
+		}
+	}
+
+	private void setup() {
+		DispersalFactory.setType("off");
+		Globals.setRandomSource(mock(RandomSource.class));
+		Globals.setLandscapeMetadata(new DataFileMetaData(WORLD_WIDTH, WORLD_HEIGHT, 3479625.18158797,
+				3125583.13019526, 400, null));
+
+		var factory = ContinuousSpaceFactoryFinder.createContinuousSpaceFactory(null);
+		space = factory.createContinuousSpace("space", context, new RandomCartesianAdder<Agent>(),
+				new BouncyBorders(), new double[] { WORLD_WIDTH, WORLD_HEIGHT }, new double[] { 0.5f, 0.5f });
+		var gridFactory = GridFactoryFinder.createGridFactory(null);
+		var grid = gridFactory.createGrid("grid", context, new GridBuilderParameters<Agent>(
+				new repast.simphony.space.grid.BouncyBorders(), new SimpleGridAdder<Agent>(), true, WORLD_WIDTH,
+				WORLD_HEIGHT));
+		Globals.setSpace(space);
+		Globals.setGrid(grid);
+
+		for (int i = 0; i < HOTSPOT_COUNT; i++) {
+			hotspots.add(randomPoint());
+		}
+		for (int i = 0; i < PORPOISE_COUNT; i++) {
+			var p = new Porpoise(context, 1, new FastRefMemTurn());
+			context.add(p);
+			p.setPosition(randomPoint());
+			porpoises.add(p);
+		}
+		for (int i = 0; i < HOTSPOT_COUNT * HOTSPOT_PORPOISES; i++) {
+			var p = new Porpoise(context, 1, new FastRefMemTurn());
+			context.add(p);
+			p.setPosition(hotspotPoint());
+		}
+	}
+
+	/**
+	 * Replaces the partitioning, adding all porpoises to the new one.
+	 */
+	private void usePartitioning(GridSpatialPartitioning partitioning) {
+		if (spatialPart != null) {
+			space.removeProjectionListener(spatialPart);
+		}
+		spatialPart = partitioning;
+		Globals.setSpatialPartitioning(partitioning);
+		space.addProjectionListener(partitioning);
+		for (var agent : context) {
+			partitioning.projectionEventOccurred(new ProjectionEvent<>(space, agent, ProjectionEvent.Type.OBJECT_ADDED));
+		}
+	}
+
+	private void run(String name, Runnable body) {
+		final long start = System.nanoTime();
+		body.run();
+		final long elapsed = System.nanoTime() - start;
+		System.out.printf("  %-20s %8.1f ns/op%n", name, elapsed / (double) QUERIES);
+	}
+
+	private NdPoint randomPoint() {
+		return new NdPoint(random.nextDouble() * (WORLD_WIDTH - 1), random.nextDouble() * (WORLD_HEIGHT - 1));
+	}
+
+	private NdPoint nearbyPoint(NdPoint p) {
+		return new NdPoint(Math.min(WORLD_WIDTH - 1, Math.max(0, p.getX() + random.nextDouble() * 20 - 10)),
+				Math.min(WORLD_HEIGHT - 1, Math.max(0, p.getY() + random.nextDouble() * 20 - 10)));
+	}
+
+	private NdPoint hotspotPoint() {
+		var hotspot = hotspots.get(random.nextInt(hotspots.size()));
+		var angle = random.nextDouble() * 2 * Math.PI;
+		var dist = random.nextDouble() * HOTSPOT_RADIUS;
+		return new NdPoint(Math.min(WORLD_WIDTH - 1, Math.max(0, hotspot.getX() + Math.cos(angle) * dist)),
+				Math.min(WORLD_HEIGHT - 1, Math.max(0, hotspot.getY() + Math.sin(angle) * dist)));
+	}
+
+	private void setSegmentQuery() {
+		for (int i = 0; i < QUERIES; i++) {
+			var start = randomPoint();
+			blackhole += spatialPart.getPorpoisesInNeighborhood(start, nearbyPoint(start)).size();
+		}
+	}
+
+	private void visitorSegmentQuery() {
+		for (int i = 0; i < QUERIES; i++) {
+			var start = randomPoint();
+			spatialPart.forEachInNeighborhood(start, nearbyPoint(start), p -> blackhole++);
+		}
+	}
+
+	private void cursorSegmentQuery() {
+		var cursor = spatialPart.newCursor();
+		for (int i = 0; i < QUERIES; i++) {
+			var start = randomPoint();
+			cursor.reset(start, nearbyPoint(start));
+			while (cursor.hasNext()) {
+				cursor.next();
+				blackhole++;
+			}
+		}
+	}
+
+	/**
+	 * A ship moving through a hot spot, deterring the porpoises near its path during one tick.
+	 */
+	private void shipLaneQuery() {
+		for (int i = 0; i < QUERIES; i++) {
+			var start = hotspotPoint();
+			spatialPart.forEachNearSegment(start, nearbyPoint(start), SHIP_DETER_DISTANCE, p -> blackhole++);
+		}
+	}
+
+	/**
+	 * A sound source (e.g. pile driving) in a hot spot.
+	 */
+	private void radiusQuery() {
+		for (int i = 0; i < QUERIES; i++) {
+			spatialPart.forEachWithinRadius(hotspotPoint(), SHIP_DETER_DISTANCE, (p, dist) -> blackhole++);
+		}
+	}
+
+	private void moveUpdate() {
+		for (int i = 0; i < QUERIES; i++) {
+			var p = porpoises.get(i % PORPOISE_COUNT);
+			p.setPosition(nearbyPoint(p.getPosition()));
+		}
+	}
+
+}
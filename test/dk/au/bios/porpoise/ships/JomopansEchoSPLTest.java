@@ -30,6 +30,7 @@ package dk.au.bios.porpoise.ships;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.within;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
@@ -104,4 +105,22 @@ public class JomopansEchoSPLTest {
 		assertThat(jespl.calculateSourceLevel(VesselClass.forValue(vc), speed, length, band)).isCloseTo(spl, within(0.00001));
 	}
 
+	@Test
+	public void cachedAndMultiBandLevelsMatchExact() {
+		var jespl = new JomopansEchoSPL();
+		var bands = new int[] { -11, -5, 0, 2, 11, 12 };
+		var levels = new double[bands.length];
+		for (var vc : VesselClass.values()) {
+			for (var speed : new double[] { 0.0, 2.5, 12.0, 30.0 }) {
+				jespl.calculate(vc, speed, 183.0, bands, levels);
+				for (int i = 0; i < bands.length; i++) {
+					var exact = jespl.calculateSourceLevel(vc, speed, 183.0, bands[i]);
+					assertThat(levels[i]).isCloseTo(exact, within(1e-9));
+					assertThat(jespl.calculate(vc, speed, 183.0, bands[i])).isEqualTo(exact);
+					assertThat(jespl.calculate(vc, speed, 183.0, bands[i])).isEqualTo(exact);
+				}
+			}
+		}
+	}
+
 }
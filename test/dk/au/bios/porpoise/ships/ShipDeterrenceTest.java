@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.ships;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+import dk.au.bios.porpoise.Ship;
+
+public class ShipDeterrenceTest {
+
+	@Test
+	void keepsLoudestShipPerStep() {
+		var first = new Ship();
+		var second = new Ship();
+		var deterrence = new ShipDeterrence();
+		assertThat(deterrence.isDirty()).isFalse();
+
+		deterrence.recordStep(0, first, 1.0d, 0.0d, 1.0d, 80.0d);
+		deterrence.recordStep(0, second, 0.0d, 2.0d, 2.0d, 90.0d);
+		deterrence.recordStep(5, first, 3.0d, 0.0d, 3.0d, 70.0d);
+		deterrence.recordStep(5, second, 0.0d, 5.0d, 5.0d, 60.0d);
+
+		assertThat(deterrence.isDirty()).isTrue();
+		assertThat(deterrence.deterrenceVtX()).isCloseTo(3.0d, within(1e-12));
+		assertThat(deterrence.deterrenceVtY()).isCloseTo(2.0d, within(1e-12));
+		assertThat(deterrence.deterrenceStrength()).isCloseTo(Math.sqrt(13.0d), within(1e-12));
+		assertThat(deterrence.getLoudestShipSPL()).isCloseTo(90.0d, within(1e-12));
+
+		deterrence.resetSteps();
+		assertThat(deterrence.isDirty()).isFalse();
+		assertThat(deterrence.deterrenceStrength()).isZero();
+		assertThat(deterrence.getLoudestShipSPL()).isZero();
+	}
+
+	@Test
+	void tiesAreBrokenByShipId() {
+		var first = new Ship();
+		var second = new Ship();
+		assertThat(first.getId()).isLessThan(second.getId());
+
+		var inOrder = new ShipDeterrence();
+		inOrder.recordStep(29, first, 1.0d, 0.0d, 1.0d, 80.0d);
+		inOrder.recordStep(29, second, 0.0d, 1.0d, 1.0d, 80.0d);
+
+		var reversed = new ShipDeterrence();
+		reversed.recordStep(29, second, 0.0d, 1.0d, 1.0d, 80.0d);
+		reversed.recordStep(29, first, 1.0d, 0.0d, 1.0d, 80.0d);
+
+		assertThat(inOrder.deterrenceVtX()).isEqualTo(1.0d);
+		assertThat(reversed.deterrenceVtX()).isEqualTo(1.0d);
+		assertThat(reversed.deterrenceVtY()).isZero();
+	}
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.ships;
+
+import static dk.au.bios.porpoise.Globals.convertGridXToUtm;
+import static dk.au.bios.porpoise.Globals.convertGridYToUtm;
+import static dk.au.bios.porpoise.ships.VesselClass.CONTAINERSHIP;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import dk.au.bios.porpoise.AbstractSimulationBDDTest;
+import dk.au.bios.porpoise.AgentPriority;
+import dk.au.bios.porpoise.Ship;
+import dk.au.bios.porpoise.tasks.ShipMoveTask;
+import repast.simphony.engine.schedule.ScheduleParameters;
+
+public class ShipTimelineTest extends AbstractSimulationBDDTest {
+
+	@Test
+	public void onlyActiveShipsInLoadOrder() throws Exception {
+		aNewWorld(100, 100);
+
+		var ships = List.of(aShip("late", 3, 4), aShip("early", 0, 2), aShip("short", 1, 1), aShip("never", 2, 1));
+		var timeline = new ShipTimeline(ships);
+		schedule.schedule(ScheduleParameters.createRepeating(0, 1, AgentPriority.SHIP_MOVE), new ShipMoveTask(timeline));
+
+		// Ships are retired when moved after their last tick
+		var expectedActive = List.of(List.of("early"), List.of("early", "short"), List.of("early"), List.of("late"),
+				List.of("late"), List.of(), List.of());
+		for (var expected : expectedActive) {
+			schedule.execute();
+			assertThat(activeShipNames(timeline)).isEqualTo(expected);
+		}
+		assertThat(timeline.size()).isEqualTo(4);
+	}
+
+	private Ship aShip(String name, int tickStart, int tickEnd) {
+		var buoys = new ArrayList<Buoy>();
+		buoys.add(new Buoy(convertGridXToUtm(20.0), convertGridYToUtm(50.0), 10.0, 0));
+		buoys.add(new Buoy(convertGridXToUtm(25.0), convertGridYToUtm(55.0), 12.0, 0));
+		var ship = new Ship(name, CONTAINERSHIP, 366.00, new Route("route-" + name, buoys), tickStart, tickEnd);
+		context.add(ship);
+		ship.initialize();
+		return ship;
+	}
+
+	private static List<String> activeShipNames(ShipTimeline timeline) {
+		var names = new ArrayList<String>();
+		for (int i = 0; i < timeline.getActiveCount(); i++) {
+			names.add(timeline.getActiveShip(i).getName());
+		}
+		return names;
+	}
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.ships;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class ShipsBinaryFileTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	public void streamingReaderMatchesDatabind() throws Exception {
+		var expected = new ObjectMapper().readValue(ShipsBinaryFileTest.class.getResourceAsStream("ships.json"),
+				ShipsData.class);
+
+		var collected = new Collector();
+		ShipsJsonReader.read(ShipsBinaryFileTest.class.getResourceAsStream("ships.json"), collected);
+
+		assertMatches(collected, expected);
+	}
+
+	@Test
+	public void convertedFileMatchesJson() throws Exception {
+		var expected = new ObjectMapper().readValue(ShipsBinaryFileTest.class.getResourceAsStream("ships.json"),
+				ShipsData.class);
+
+		var binaryFile = tempDir.resolve(ShipsBinaryFile.FILE_NAME);
+		ShipsBinaryFile.convert(ShipsBinaryFileTest.class.getResourceAsStream("ships.json"), binaryFile);
+		var collected = new Collector();
+		ShipsBinaryFile.read(binaryFile, collected);
+
+		assertMatches(collected, expected);
+	}
+
+	private static void assertMatches(Collector collected, ShipsData expected) {
+		assertThat(collected.routes).hasSameSizeAs(expected.getRoutes());
+		for (int i = 0; i < expected.getRoutes().size(); i++) {
+			var expectedRoute = expected.getRoutes().get(i);
+			var route = collected.routes.get(i);
+			assertThat(route.getName()).isEqualTo(expectedRoute.getName());
+			var buoys = route.getBuoys();
+			assertThat(buoys.size()).isEqualTo(expectedRoute.getRoute().size());
+			for (int b = 0; b < buoys.size(); b++) {
+				var expectedBuoy = expectedRoute.getRoute().get(b);
+				assertThat(buoys.getX(b)).isEqualTo(expectedBuoy.getX());
+				assertThat(buoys.getY(b)).isEqualTo(expectedBuoy.getY());
+				assertThat(buoys.getSpeed(b)).isEqualTo(expectedBuoy.getSpeed());
+				assertThat(buoys.getPause(b)).isEqualTo(expectedBuoy.getPause());
+			}
+		}
+
+		assertThat(collected.ships).hasSameSizeAs(expected.getShips());
+		for (int i = 0; i < expected.getShips().size(); i++) {
+			var expectedShip = expected.getShips().get(i);
+			assertThat(collected.ships.get(i)).isEqualTo(List.of(expectedShip.getName(), expectedShip.getType(),
+					expectedShip.getLength(), expectedShip.getRoute().getName(), expectedShip.getTickStart(),
+					expectedShip.getTickEnd()));
+		}
+	}
+
+	private static class Collector implements ShipsDataHandler {
+		private final List<Route> routes = new ArrayList<>();
+		private final List<List<Object>> ships = new ArrayList<>();
+
+		@Override
+		public void route(Route route) {
+			routes.add(route);
+		}
+
+		@Override
+		public void ship(String name, VesselClass type, double length, String routeName, int tickStart, int tickEnd) {
+			ships.add(List.of(name, type, length, routeName, tickStart, tickEnd));
+		}
+	}
+
+}
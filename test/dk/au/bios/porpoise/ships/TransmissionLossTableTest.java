@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.ships;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+public class TransmissionLossTableTest {
+
+	@Test
+	void matchesExactModel() {
+		for (double depth : new double[] { 0.5, 5, 20, 40, 110, 300 }) {
+			for (double grainSize = -8.0d; grainSize <= 10.0d; grainSize += 0.75d) {
+				for (double salinity : new double[] { 8, 24, 34, 37 }) {
+					for (double dist = 1.0d; dist < 100000.0d; dist *= 1.37d) {
+						assertThat(WestonFlux.calc(dist, depth, grainSize, 10.0, salinity))
+								.isCloseTo(WestonFlux.calcExact(dist, depth, grainSize, 10.0, salinity),
+										within(TransmissionLossTable.MAX_ERROR));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	void sourceIsCached() {
+		var source = TransmissionLossTable.getSource(40, 6.5d, 10.0, 34);
+		assertThat(TransmissionLossTable.getSource(40, 6.5d, 10.0, 34)).isSameAs(source);
+		assertThat(TransmissionLossTable.getSource(41, 6.5d, 10.0, 34)).isNotSameAs(source);
+		assertThat(source.propagationLoss(2000)).isCloseTo(57.1084d, within(0.000005));
+	}
+
+	@Test
+	void invalidInputsFollowExactModel() {
+		assertThat(WestonFlux.calc(0.0d, 40, 6.5d, 10.0, 34)).isNaN();
+		assertThat(WestonFlux.calc(100.0d, 0.0d, 6.5d, 10.0, 34)).isZero();
+	}
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+class DeathEventBufferTest {
+
+	@Test
+	public void drainsInOrderAcrossWrapAndGrowth() {
+		var buffer = new DeathEventBuffer(4);
+		var drained = new ArrayList<String>();
+		DeathEventBuffer.DeathEventConsumer consumer = (tick, age, born, weaned, type) -> drained
+				.add(tick + "/" + age + "/" + born + "/" + weaned + "/" + type);
+
+		// Move the head so the next events wrap around the end of the arrays
+		buffer.add(1, 0.5, 0, 0, "Off");
+		buffer.add(2, 1.5, 1, 0, "Off");
+		buffer.add(3, 2.5, 1, 1, "Off");
+		buffer.drain(consumer);
+		assertThat(drained).containsExactly("1.0/0.5/0/0/Off", "2.0/1.5/1/0/Off", "3.0/2.5/1/1/Off");
+		assertThat(buffer.size()).isZero();
+
+		drained.clear();
+		for (int i = 0; i < 10; i++) {
+			buffer.add(10 + i, i, i, i, "PSM-Type2");
+		}
+		assertThat(buffer.size()).isEqualTo(10);
+		buffer.drain(consumer);
+		assertThat(drained).hasSize(10);
+		for (int i = 0; i < 10; i++) {
+			assertThat(drained.get(i)).isEqualTo((10.0 + i) + "/" + (double) i + "/" + i + "/" + i + "/PSM-Type2");
+		}
+	}
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2023 Jacob Nabe-Nielsen <jnn@bios.au.dk>
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public
+ * License version 2 and only version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied
+ * warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program; if not, see 
+ * <https://www.gnu.org/licenses>.
+ * 
+ * Linking DEPONS statically or dynamically with other modules is making a combined work based on DEPONS. 
+ * Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ * 
+ * In addition, as a special exception, the copyright holders of DEPONS give you permission to combine DEPONS 
+ * with free software programs or libraries that are released under the GNU LGPL and with code included in the 
+ * standard release of Repast Simphony under the Repast Suite License (or modified versions of such code, with unchanged license). 
+ * You may copy and distribute such a system following the terms of the GNU GPL for DEPONS and the licenses of the 
+ * other code concerned.
+ * 
+ * Note that people who make modified versions of DEPONS are not obligated to grant this special exception for 
+ * their modified versions; it is their choice whether to do so. 
+ * The GNU General Public License gives permission to release a modified version without this exception; 
+ * this exception also makes it possible to release a modified version which carries forward this exception.
+ */
+
+
+package dk.au.bios.porpoise.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for the SimulationExecutor.
+ */
+public class SimulationExecutorTest {
+
+	@Test
+	public void reduceIsIndependentOfParallelism() {
+		var values = new Random(42).doubles(100_000).map(d -> d * 1e-3).toArray();
+
+		var serial = new SimulationExecutor(1);
+		var parallel = new SimulationExecutor(4);
+		try {
+			var serialSum = serial.parallelReduce("test", values.length, 1000, (from, to) -> sum(values, from, to));
+			var parallelSum = parallel.parallelReduce("test", values.length, 1000, (from, to) -> sum(values, from, to));
+
+			assertThat(parallelSum).isEqualTo(serialSum);
+			assertThat(serial.getUtilisation("test")).isGreaterThan(0.0d);
+		} finally {
+			serial.shutdown();
+			parallel.shutdown();
+		}
+	}
+
+	@Test
+	public void forVisitsEachIndexOnce() {
+		var visits = new AtomicIntegerArray(10_001);
+
+		var parallel = new SimulationExecutor(3);
+		try {
+			parallel.parallelFor("test", visits.length(), 64, (from, to) -> {
+				for (int i = from; i < to; i++) {
+					visits.incrementAndGet(i);
+				}
+			});
+		} finally {
+			parallel.shutdown();
+		}
+
+		for (int i = 0; i < visits.length(); i++) {
+			assertThat(visits.get(i)).isEqualTo(1);
+		}
+	}
+
+	private static double sum(double[] values, int from, int to) {
+		double sum = 0.0d;
+		for (int i = from; i < to; i++) {
+			sum += values[i];
+		}
+		return sum;
+	}
+
+}